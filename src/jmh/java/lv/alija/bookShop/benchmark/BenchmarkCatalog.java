@@ -0,0 +1,106 @@
+package lv.alija.bookShop.benchmark;
+
+import lv.alija.bookShop.BookShopApplication;
+import lv.alija.bookShop.business.repository.BookGenerationRepositoryImpl;
+import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.caching.BookListRefresher;
+import lv.alija.bookShop.model.Book;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic books for the benchmarks. Book i has id i + 3, after the rows of data.sql, and isbn {@link #isbn(int)}
+ * of its id, so it does not clash with the isbns of data.sql either.
+ */
+final class BenchmarkCatalog {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private static final long FIRST_REFRESH_TIMEOUT_MS = 10_000;
+
+    private BenchmarkCatalog() {
+    }
+
+    static String isbn(int i) {
+        return String.format("%03d-%02d-%05d-%02d-%d", i / 10_000_000, (i / 100_000) % 100, i % 100_000,
+                (i / 10_000) % 100, i % 10);
+    }
+
+    static Book book(int i) {
+        return new Book((long) i + 3, "Title " + i, "Author " + i % 1000, "Genre " + i % 20,
+                1900L + i % 123, isbn(i + 3), (long) i % 50, 100L + i % 900, 0L);
+    }
+
+    static List<Book> books(int size) {
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            books.add(book(i));
+        }
+        return books;
+    }
+
+    static List<BookDAO> bookDAOs(int size) {
+        List<BookDAO> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Book book = book(i);
+            BookDAO bookDAO = new BookDAO();
+            bookDAO.setId(book.getId());
+            bookDAO.setTitle(book.getTitle());
+            bookDAO.setAuthor(book.getAuthor());
+            bookDAO.setGenre(book.getGenre());
+            bookDAO.setReleaseYear(book.getReleaseYear());
+            bookDAO.setIsbn(book.getIsbn());
+            bookDAO.setQuantity(book.getQuantity());
+            bookDAO.setPrice(book.getPrice());
+            bookDAO.setVersion(0L);
+            books.add(bookDAO);
+        }
+        return books;
+    }
+
+    /**
+     * Starts the application on a random port and inserts {@code rows} books next to the rows of data.sql.
+     * The first scheduled refresh caches the rows of data.sql, so it is waited for and the bookList entry
+     * is refreshed once more after the insert. The next scheduled refresh is pushed out of the measurement.
+     */
+    static ConfigurableApplicationContext start(int rows) {
+        ConfigurableApplicationContext context = SpringApplication.run(BookShopApplication.class,
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--bookshop.cache.refresh-ahead-ms=3600000");
+        BookListRefresher refresher = context.getBean(BookListRefresher.class);
+        awaitFirstRefresh(refresher);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            Book book = book(i);
+            batch.add(new Object[]{book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                    book.getReleaseYear(), book.getIsbn(), book.getQuantity(), book.getPrice()});
+            if (batch.size() == INSERT_BATCH_SIZE || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO book (id, title, author, genre, release_year, isbn, quantity, price) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.update(BookGenerationRepositoryImpl.INCREMENT_GENERATION);
+        refresher.refresh();
+        return context;
+    }
+
+    private static void awaitFirstRefresh(BookListRefresher refresher) {
+        long deadline = System.currentTimeMillis() + FIRST_REFRESH_TIMEOUT_MS;
+        while (refresher.getLastRefreshTime() == null && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the first bookList refresh", e);
+            }
+        }
+    }
+}
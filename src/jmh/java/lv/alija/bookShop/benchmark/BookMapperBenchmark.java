@@ -0,0 +1,52 @@
+package lv.alija.bookShop.benchmark;
+
+import lv.alija.bookShop.business.mapper.BookMapper;
+import lv.alija.bookShop.business.mapper.BookMapperImpl;
+import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Mapping a whole catalog of entities to {@link Book}, as the list endpoints did before the projections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookMapperBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private final BookMapper bookMapper = new BookMapperImpl();
+
+    private List<BookDAO> bookDAOs;
+
+    private List<Book> books;
+
+    @Setup
+    public void setUp() {
+        bookDAOs = BenchmarkCatalog.bookDAOs(size);
+        books = BenchmarkCatalog.books(size);
+    }
+
+    @Benchmark
+    public List<Book> bookDAOToBook() {
+        return bookDAOs.stream().map(bookMapper::bookDAOToBook).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<BookDAO> bookToBookDAO() {
+        return books.stream().map(bookMapper::bookToBookDAO).collect(Collectors.toList());
+    }
+}
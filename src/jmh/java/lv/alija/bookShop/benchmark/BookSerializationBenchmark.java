@@ -0,0 +1,45 @@
+package lv.alija.bookShop.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lv.alija.bookShop.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the book list, the per-request cost that the JSON response cache saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookSerializationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private List<Book> books;
+
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() {
+        books = BenchmarkCatalog.books(size);
+        writer = new ObjectMapper().writerFor(new ObjectMapper().getTypeFactory()
+                .constructCollectionType(List.class, Book.class));
+    }
+
+    @Benchmark
+    public byte[] writeList() throws JsonProcessingException {
+        return writer.writeValueAsBytes(books);
+    }
+}
@@ -0,0 +1,61 @@
+package lv.alija.bookShop.benchmark;
+
+import lv.alija.bookShop.business.service.BookService;
+import lv.alija.bookShop.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import lv.alija.bookShop.caching.CacheNames;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findAllBooks from the warm bookList cache, and with the entry evicted first, which runs the query every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindAllBooksBenchmark {
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private BookService bookService;
+
+    private Cache bookList;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkCatalog.start(rows);
+        bookService = context.getBean(BookService.class);
+        bookList = context.getBean(CacheManager.class).getCache(CacheNames.BOOK_LIST);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Book> cached() {
+        return bookService.findAllBooks();
+    }
+
+    @Benchmark
+    public List<Book> uncached() {
+        bookList.evict(CacheNames.ALL_BOOKS_KEY);
+        return bookService.findAllBooks();
+    }
+}
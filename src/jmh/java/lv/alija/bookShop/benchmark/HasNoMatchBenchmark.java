@@ -0,0 +1,56 @@
+package lv.alija.bookShop.benchmark;
+
+import lv.alija.bookShop.business.service.impl.BookServiceImpl;
+import lv.alija.bookShop.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The isbn check of every POST against a growing table. With the unique normalized index it should
+ * stay flat from 1k to 1M rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HasNoMatchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private BookServiceImpl bookService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkCatalog.start(rows);
+        bookService = context.getBean(BookServiceImpl.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean existingIsbn() {
+        return bookService.hasNoMatch(BenchmarkCatalog.book(ThreadLocalRandom.current().nextInt(rows)));
+    }
+
+    @Benchmark
+    public boolean newIsbn() {
+        Book book = BenchmarkCatalog.book(rows + ThreadLocalRandom.current().nextInt(rows));
+        return bookService.hasNoMatch(book);
+    }
+}
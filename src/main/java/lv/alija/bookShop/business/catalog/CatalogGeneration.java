@@ -0,0 +1,77 @@
+package lv.alija.bookShop.business.catalog;
+
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Increases the persisted generation of the catalog once in every transaction that changes a book,
+ * inside that transaction, so the generation is committed or rolled back together with the books.
+ * Unlike {@link CatalogVersion} it is kept in the database, and tells a {@link CatalogSnapshotFile}
+ * written by an earlier run whether the table changed since. Writes to the book table that publish
+ * no {@link BookChangedEvent}, such as the flush of the inventory counters, increase it themselves
+ * when {@link #isEnabled()}.
+ * <p>
+ * Every increase locks the single row of the generation until the transaction ends, which serializes
+ * the writes of the book table. It is only paid with bookshop.snapshot.file set, without a snapshot
+ * file nothing reads the generation and it is not increased.
+ */
+@Component
+public class CatalogGeneration {
+
+    private final BookRepository bookRepository;
+
+    private final boolean enabled;
+
+    public CatalogGeneration(BookRepository bookRepository,
+                             @Value("${bookshop.snapshot.file:}") String snapshotFile) {
+        this.bookRepository = bookRepository;
+        this.enabled = snapshotFile != null && !snapshotFile.trim().isEmpty();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs when the event is published, in the transaction of the write.
+     */
+    @Order(BookChangedEvent.DATA_LISTENER_ORDER)
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bookRepository.incrementCatalogGeneration();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        bookRepository.incrementCatalogGeneration();
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(CatalogGeneration.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(CatalogGeneration.this, Boolean.TRUE);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CatalogGeneration.this);
+            }
+        });
+    }
+}
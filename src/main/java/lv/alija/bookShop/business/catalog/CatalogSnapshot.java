@@ -0,0 +1,156 @@
+package lv.alija.bookShop.business.catalog;
+
+import lv.alija.bookShop.business.mapper.BookNormalizer;
+import lv.alija.bookShop.model.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Immutable copy of the whole catalog. Books are kept sorted by id in a primitive {@code long[]},
+ * so an id lookup is a binary search without boxing, and hash indexes cover author, genre and isbn.
+ * Author and isbn lookups are case-insensitive, like the normalized columns of the book table.
+ * A change never modifies a snapshot, it builds a new one. Books are copied on the way in, so a caller
+ * changing its book afterwards does not change the snapshot. The books handed out are shared by all
+ * readers and must not be modified.
+ */
+public final class CatalogSnapshot {
+
+    private static final CatalogSnapshot EMPTY = new CatalogSnapshot(new ArrayList<>());
+
+    private final long[] ids;
+
+    private final Book[] books;
+
+    private final Map<String, List<Book>> byAuthor;
+
+    private final Map<String, List<Book>> byGenre;
+
+    private final Map<String, Book> byIsbn;
+
+    private CatalogSnapshot(List<Book> sortedBooks) {
+        this.books = sortedBooks.toArray(new Book[0]);
+        this.ids = new long[books.length];
+        for (int i = 0; i < books.length; i++) {
+            ids[i] = books[i].getId();
+        }
+        this.byAuthor = group(sortedBooks, book -> BookNormalizer.normalize(book.getAuthor()));
+        this.byGenre = group(sortedBooks, Book::getGenre);
+        Map<String, Book> isbnIndex = new HashMap<>(books.length * 2);
+        for (Book book : books) {
+            isbnIndex.put(BookNormalizer.normalize(book.getIsbn()), book);
+        }
+        this.byIsbn = Collections.unmodifiableMap(isbnIndex);
+    }
+
+    public static CatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static CatalogSnapshot of(Collection<Book> books) {
+        List<Book> sortedBooks = new ArrayList<>(books.size());
+        for (Book book : books) {
+            sortedBooks.add(copy(book));
+        }
+        sortedBooks.sort(Comparator.comparing(Book::getId));
+        return new CatalogSnapshot(sortedBooks);
+    }
+
+    public int size() {
+        return books.length;
+    }
+
+    public List<Book> books() {
+        return Collections.unmodifiableList(Arrays.asList(books));
+    }
+
+    public Optional<Book> findById(long id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? Optional.of(books[index]) : Optional.empty();
+    }
+
+    public List<Book> findByAuthor(String author) {
+        return byAuthor.getOrDefault(BookNormalizer.normalize(author), Collections.emptyList());
+    }
+
+    public List<Book> findByGenre(String genre) {
+        return byGenre.getOrDefault(genre, Collections.emptyList());
+    }
+
+    public Optional<Book> findByIsbn(String isbn) {
+        return Optional.ofNullable(byIsbn.get(BookNormalizer.normalize(isbn)));
+    }
+
+    /**
+     * Returns a new snapshot where the book replaces the one with the same id, or is added.
+     */
+    public CatalogSnapshot withBook(Book book) {
+        return withChanges(Collections.singletonMap(book.getId(), book));
+    }
+
+    /**
+     * Returns a new snapshot without the book, or this snapshot if there is no book with this id.
+     */
+    public CatalogSnapshot withoutBook(long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return this;
+        }
+        return withChanges(Collections.singletonMap(id, null));
+    }
+
+    /**
+     * Returns a new snapshot with all changes applied in one pass: a book replaces the one with its id
+     * or is added, a null value removes the book with that id. A batch of changes costs one rebuild.
+     */
+    public CatalogSnapshot withChanges(Map<Long, Book> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        long[] changedIds = new long[changes.size()];
+        int count = 0;
+        for (Long id : changes.keySet()) {
+            changedIds[count++] = id;
+        }
+        Arrays.sort(changedIds);
+        List<Book> sortedBooks = new ArrayList<>(books.length + changedIds.length);
+        int index = 0;
+        for (long id : changedIds) {
+            while (index < books.length && ids[index] < id) {
+                sortedBooks.add(books[index++]);
+            }
+            if (index < books.length && ids[index] == id) {
+                index++;
+            }
+            Book book = changes.get(id);
+            if (book != null) {
+                sortedBooks.add(copy(book));
+            }
+        }
+        sortedBooks.addAll(Arrays.asList(books).subList(index, books.length));
+        return new CatalogSnapshot(sortedBooks);
+    }
+
+    private static Book copy(Book book) {
+        return new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(), book.getReleaseYear(),
+                book.getIsbn(), book.getQuantity(), book.getPrice(), book.getVersion());
+    }
+
+    private static Map<String, List<Book>> group(List<Book> sortedBooks, Function<Book, String> key) {
+        Map<String, List<Book>> groups = new HashMap<>();
+        for (Book book : sortedBooks) {
+            groups.computeIfAbsent(key.apply(book), k -> new ArrayList<>()).add(book);
+        }
+        Map<String, List<Book>> index = new HashMap<>(groups.size() * 2);
+        groups.forEach((k, v) -> index.put(k, Collections.unmodifiableList(v)));
+        return Collections.unmodifiableMap(index);
+    }
+}
@@ -0,0 +1,278 @@
+package lv.alija.bookShop.business.catalog;
+
+import lv.alija.bookShop.business.mapper.BookNormalizer;
+import lv.alija.bookShop.caching.BookSerializer;
+import lv.alija.bookShop.model.Book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * A {@link CatalogSnapshot} written to a file and read back through a read-only memory mapping.
+ * Opening only checks the header, pages are read by the operating system when a lookup touches them.
+ * The header carries the {@link CatalogGeneration} the books were read at, so the file can be checked against the table.
+ * <pre>
+ * header  magic, format version, creation time, number of books, number of authors, catalog generation
+ * ids     (id, book offset) sorted by id
+ * authors (hash of normalized author, entry offset) sorted by hash
+ * isbns   (hash of normalized isbn, book offset) sorted by hash
+ * entries normalized author, number of books, their book offsets
+ * books   in the form of {@link BookSerializer}
+ * </pre>
+ */
+public final class CatalogSnapshotFile {
+
+    static final int MAGIC = 0x424F4F4B;
+
+    static final int FORMAT_VERSION = 4;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int ID_ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+
+    private static final int HASH_ENTRY_SIZE = 2 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+
+    private final long createdAt;
+
+    private final int size;
+
+    private final long generation;
+
+    private final int authors;
+
+    private final int idIndex;
+
+    private final int authorIndex;
+
+    private final int isbnIndex;
+
+    private CatalogSnapshotFile(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a catalog snapshot file");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Catalog snapshot file format " + buffer.getInt(4)
+                    + " is not supported, expected " + FORMAT_VERSION);
+        }
+        int books = buffer.getInt(16);
+        int authorCount = buffer.getInt(20);
+        if (books < 0 || authorCount < 0 || HEADER_SIZE + (long) books * (ID_ENTRY_SIZE + HASH_ENTRY_SIZE)
+                + (long) authorCount * HASH_ENTRY_SIZE > buffer.capacity()) {
+            throw new IllegalStateException("Catalog snapshot file is truncated");
+        }
+        this.buffer = buffer;
+        this.createdAt = buffer.getLong(8);
+        this.size = books;
+        this.generation = buffer.getLong(24);
+        this.authors = authorCount;
+        this.idIndex = HEADER_SIZE;
+        this.authorIndex = idIndex + size * ID_ENTRY_SIZE;
+        this.isbnIndex = authorIndex + authors * HASH_ENTRY_SIZE;
+    }
+
+    public static CatalogSnapshotFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new CatalogSnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the snapshot, read at the given catalog generation, to a temporary file next to the path
+     * and moves it over the path, so a reader never maps a half written file.
+     */
+    public static void write(CatalogSnapshot snapshot, long generation, Path path) throws IOException {
+        List<Book> books = snapshot.books();
+        Map<String, List<Integer>> authorBooks = new TreeMap<>();
+        for (int i = 0; i < books.size(); i++) {
+            String author = BookNormalizer.normalize(books.get(i).getAuthor());
+            if (author != null) {
+                authorBooks.computeIfAbsent(author, key -> new ArrayList<>()).add(i);
+            }
+        }
+        // every string is encoded once, the offsets are computed from the bytes that are written
+        Map<String, byte[]> authorKeys = new TreeMap<>();
+        authorBooks.keySet().forEach(author -> authorKeys.put(author, author.getBytes(StandardCharsets.UTF_8)));
+        long entriesStart = HEADER_SIZE + (long) books.size() * (ID_ENTRY_SIZE + HASH_ENTRY_SIZE)
+                + (long) authorBooks.size() * HASH_ENTRY_SIZE;
+        long booksStart = entriesStart;
+        for (Map.Entry<String, List<Integer>> entry : authorBooks.entrySet()) {
+            booksStart += 2 * Integer.BYTES + authorKeys.get(entry.getKey()).length
+                    + (long) entry.getValue().size() * Integer.BYTES;
+        }
+        byte[][] encoded = new byte[books.size()][];
+        int[] offsets = new int[books.size()];
+        long fileSize = booksStart;
+        for (int i = 0; i < books.size(); i++) {
+            encoded[i] = BookSerializer.encode(books.get(i));
+            offsets[i] = (int) fileSize;
+            fileSize += encoded[i].length;
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Catalog is too big for a snapshot file");
+            }
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            out.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(System.currentTimeMillis())
+                    .putInt(books.size()).putInt(authorBooks.size()).putLong(generation);
+            for (int i = 0; i < books.size(); i++) {
+                out.putLong(books.get(i).getId()).putInt(offsets[i]);
+            }
+            List<int[]> authorEntries = new ArrayList<>(authorBooks.size());
+            int entryOffset = (int) entriesStart;
+            for (Map.Entry<String, List<Integer>> entry : authorBooks.entrySet()) {
+                authorEntries.add(new int[]{entry.getKey().hashCode(), entryOffset});
+                entryOffset += 2 * Integer.BYTES + authorKeys.get(entry.getKey()).length
+                        + entry.getValue().size() * Integer.BYTES;
+            }
+            putSorted(out, authorEntries);
+            List<int[]> isbnEntries = new ArrayList<>(books.size());
+            for (int i = 0; i < books.size(); i++) {
+                String isbn = BookNormalizer.normalize(books.get(i).getIsbn());
+                isbnEntries.add(new int[]{isbn == null ? 0 : isbn.hashCode(), offsets[i]});
+            }
+            putSorted(out, isbnEntries);
+            for (Map.Entry<String, List<Integer>> entry : authorBooks.entrySet()) {
+                byte[] author = authorKeys.get(entry.getKey());
+                out.putInt(author.length).put(author).putInt(entry.getValue().size());
+                entry.getValue().forEach(index -> out.putInt(offsets[index]));
+            }
+            for (byte[] book : encoded) {
+                out.put(book);
+            }
+            out.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public Optional<Book> findById(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = idIndex + middle * ID_ENTRY_SIZE;
+            long middleId = buffer.getLong(entry);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return Optional.of(readBook(buffer.getInt(entry + Long.BYTES)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<Book> findByAuthor(String author) {
+        String key = BookNormalizer.normalize(author);
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        byte[] expected = key.getBytes(StandardCharsets.UTF_8);
+        int hash = key.hashCode();
+        for (int i = firstWithHash(authorIndex, authors, hash); i < authors && hashAt(authorIndex, i) == hash; i++) {
+            int entry = buffer.getInt(authorIndex + i * HASH_ENTRY_SIZE + Integer.BYTES);
+            if (matches(entry, expected)) {
+                int booksOffset = entry + Integer.BYTES + expected.length;
+                int count = buffer.getInt(booksOffset);
+                List<Book> books = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    books.add(readBook(buffer.getInt(booksOffset + Integer.BYTES * (j + 1))));
+                }
+                return Collections.unmodifiableList(books);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    public Optional<Book> findByIsbn(String isbn) {
+        String key = BookNormalizer.normalize(isbn);
+        if (key == null) {
+            return Optional.empty();
+        }
+        int hash = key.hashCode();
+        for (int i = firstWithHash(isbnIndex, size, hash); i < size && hashAt(isbnIndex, i) == hash; i++) {
+            Book book = readBook(buffer.getInt(isbnIndex + i * HASH_ENTRY_SIZE + Integer.BYTES));
+            if (key.equals(BookNormalizer.normalize(book.getIsbn()))) {
+                return Optional.of(book);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static void putSorted(ByteBuffer out, List<int[]> entries) {
+        entries.sort(Comparator.comparingInt(entry -> entry[0]));
+        for (int[] entry : entries) {
+            out.putInt(entry[0]).putInt(entry[1]);
+        }
+    }
+
+    private int hashAt(int index, int position) {
+        return buffer.getInt(index + position * HASH_ENTRY_SIZE);
+    }
+
+    private int firstWithHash(int index, int count, int hash) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (hashAt(index, middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private boolean matches(int entry, byte[] expected) {
+        if (buffer.getInt(entry) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(entry + Integer.BYTES + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Absolute reads of the shared buffer are safe from many threads, the relative reads of a book use their own view.
+     */
+    private Book readBook(int offset) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        return BookSerializer.readBook(view);
+    }
+}
@@ -0,0 +1,303 @@
+package lv.alija.bookShop.business.catalog;
+
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.model.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Holds the current {@link CatalogSnapshot}. It is loaded once the application is ready and then
+ * kept up to date copy-on-write from {@link BookChangedEvent}s, so lookups by id, author, genre and
+ * isbn are answered without touching the database. The changes of one transaction are applied together
+ * after its commit, so a batch of saved books costs one rebuild instead of one per book. Until the first load completes
+ * {@link #isLoaded()} is false and callers should read from the database.
+ * <p>
+ * With bookshop.snapshot.file set, the snapshot is also written to that file after every load and on
+ * shutdown. On the next start the file is mapped before the books are read, and id and author lookups
+ * are answered from it while the books are loaded in the background, until the load completes or a book
+ * changes. The file is only used when the {@link CatalogGeneration} stored with the table still equals
+ * the one in the file, which costs the read of one row. A table that was changed since the file was
+ * written is read from the database. The generation starts at a random value whenever its table is created,
+ * so a file written for an earlier table, such as the one seeded by an earlier start, is not used either.
+ * <p>
+ * The table is read outside the lock that applies the changes, so writes are not held up by a load.
+ * Changes applied while a load reads the table are kept and applied to the loaded snapshot again.
+ */
+@Log4j2
+@Service
+public class CatalogSnapshotService {
+
+    private final BookRepository bookRepository;
+
+    private final Path snapshotFile;
+
+    private volatile CatalogSnapshot snapshot = CatalogSnapshot.empty();
+
+    private volatile CatalogSnapshotFile mappedSnapshot;
+
+    private volatile boolean loaded;
+
+    /**
+     * Changes applied while a load reads the table, null while there is no load. Guarded by the lock of the service.
+     */
+    private Map<Long, Book> changedDuringLoad;
+
+    /**
+     * Held by a load and by the write of the file at shutdown, which read the table. It is never taken
+     * inside the lock of the service.
+     */
+    private final Object loadLock = new Object();
+
+    /**
+     * Catalog generation of the snapshot file, -1 while there is none. Guarded by the load lock.
+     */
+    private long fileGeneration = -1;
+
+    public CatalogSnapshotService(BookRepository bookRepository,
+                                  @Value("${bookshop.snapshot.file:}") String snapshotFile) {
+        this.bookRepository = bookRepository;
+        this.snapshotFile = snapshotFile == null || snapshotFile.trim().isEmpty() ? null : Paths.get(snapshotFile);
+    }
+
+    @PostConstruct
+    public void open() {
+        if (snapshotFile == null || !Files.isRegularFile(snapshotFile)) {
+            return;
+        }
+        try {
+            CatalogSnapshotFile mapped = CatalogSnapshotFile.open(snapshotFile);
+            long generation = bookRepository.findCatalogGeneration();
+            if (mapped.getGeneration() != generation) {
+                log.info("Catalog snapshot file {} written at {} is not used, the book table has changed: " +
+                                "generation {}, file {}", snapshotFile, new Date(mapped.getCreatedAt()), generation,
+                        mapped.getGeneration());
+                return;
+            }
+            synchronized (loadLock) {
+                fileGeneration = generation;
+            }
+            mappedSnapshot = mapped;
+            log.info("Catalog snapshot file {} written at {} is mapped. Size is : {}", snapshotFile,
+                    new Date(mapped.getCreatedAt()), mapped.size());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Catalog snapshot file {} is not used: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * While the snapshot file answers, the books are loaded on a thread of their own, so the startup
+     * does not wait for them. Without the file reads go to the database until the load completes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (mappedSnapshot == null) {
+            load();
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                log.error("Catalog snapshot is not loaded, the snapshot file answers until a book changes", e);
+            }
+        }, "catalog-snapshot-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Changes applied while the table is read are collected and applied again to the loaded books.
+     * Applying a change twice gives the same snapshot, so a book written while the table is being read
+     * is never lost, whether the read saw it or not.
+     * The generation is read before the books: a write that commits in between makes the file
+     * older than the table, and it is not used, instead of newer and used with the write missing.
+     */
+    public void load() {
+        synchronized (loadLock) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                changedDuringLoad = new LinkedHashMap<>();
+            }
+            long generation;
+            List<Book> books;
+            try {
+                generation = bookRepository.findCatalogGeneration();
+                books = bookRepository.findAllBooks();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changedDuringLoad = null;
+                }
+                throw e;
+            }
+            CatalogSnapshot loadedSnapshot = CatalogSnapshot.of(books);
+            synchronized (this) {
+                if (!changedDuringLoad.isEmpty()) {
+                    loadedSnapshot = loadedSnapshot.withChanges(changedDuringLoad);
+                }
+                changedDuringLoad = null;
+                snapshot = loadedSnapshot;
+                loaded = true;
+                mappedSnapshot = null;
+            }
+            log.info("Catalog snapshot is loaded. Size is : {}, took {} ms", books.size(),
+                    System.currentTimeMillis() - start);
+            writeFile(loadedSnapshot, generation);
+        }
+    }
+
+    /**
+     * Runs when the event is published. Inside a transaction the change is only collected, and applied
+     * with the other changes of that transaction once it has committed, without one it is applied right away.
+     */
+    @Order(BookChangedEvent.DATA_LISTENER_ORDER)
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(Collections.singletonMap(event.getId(), event.getBook()));
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.put(event.getId(), event.getBook());
+    }
+
+    /**
+     * The stock of several books is applied in one rebuild.
+     */
+    @Order(BookChangedEvent.DATA_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        Map<Long, Book> changes = new LinkedHashMap<>();
+        event.getBooks().forEach(book -> changes.put(book.getId(), book));
+        apply(changes);
+    }
+
+    private synchronized void apply(Map<Long, Book> changes) {
+        if (changedDuringLoad != null) {
+            changedDuringLoad.putAll(changes);
+        }
+        snapshot = snapshot.withChanges(changes);
+        // the file does not have the change, the database answers until the load
+        mappedSnapshot = null;
+    }
+
+    /**
+     * Writes the file again only if the table changed since it was written. The books are read again
+     * instead of taken from the snapshot, a change that is committed but not applied to the snapshot yet
+     * would otherwise be missing from a file that carries its generation.
+     */
+    @PreDestroy
+    public void close() {
+        if (!loaded || snapshotFile == null) {
+            return;
+        }
+        synchronized (loadLock) {
+            try {
+                long generation = bookRepository.findCatalogGeneration();
+                if (generation != fileGeneration) {
+                    writeFile(CatalogSnapshot.of(bookRepository.findAllBooks()), generation);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Catalog snapshot file {} is not written", snapshotFile, e);
+            }
+        }
+    }
+
+    /**
+     * True once the snapshot is loaded, or while it is not loaded yet but the snapshot file can answer.
+     */
+    public boolean isLoaded() {
+        return loaded || mappedSnapshot != null;
+    }
+
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Optional<Book> findById(Long id) {
+        CatalogSnapshotFile mapped = mappedSnapshot;
+        return !loaded && mapped != null ? mapped.findById(id) : snapshot.findById(id);
+    }
+
+    public List<Book> findByAuthor(String author) {
+        CatalogSnapshotFile mapped = mappedSnapshot;
+        return !loaded && mapped != null ? mapped.findByAuthor(author) : snapshot.findByAuthor(author);
+    }
+
+    /**
+     * Skipped when the file already has the generation, such as after a load that found the table unchanged.
+     * Holds the load lock. A snapshot with changes applied during the load is newer than its generation,
+     * which only makes the file look older than it is.
+     */
+    private void writeFile(CatalogSnapshot snapshot, long generation) {
+        if (snapshotFile == null || generation == fileGeneration) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            CatalogSnapshotFile.write(snapshot, generation, snapshotFile);
+            fileGeneration = generation;
+            log.info("Catalog snapshot file {} is written. Size is : {}, took {} ms", snapshotFile,
+                    snapshot.size(), System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Catalog snapshot file {} is not written", snapshotFile, e);
+        }
+    }
+
+    /**
+     * The changes of the current transaction, by book id. A deleted book maps to null.
+     */
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final Map<Long, Book> changes = new LinkedHashMap<>();
+
+        @Override
+        public int getOrder() {
+            return BookChangedEvent.DATA_LISTENER_ORDER;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(CatalogSnapshotService.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(CatalogSnapshotService.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CatalogSnapshotService.this);
+            if (status == STATUS_COMMITTED) {
+                apply(changes);
+            }
+        }
+    }
+}
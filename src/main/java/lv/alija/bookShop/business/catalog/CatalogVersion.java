@@ -0,0 +1,54 @@
+package lv.alija.bookShop.business.catalog;
+
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the whole catalog, increased on every book change. The ETag of the book list is the
+ * version its body was encoded at, so it changes with the very next change, however close in time.
+ * The version starts at the start time, so ETags handed out by an earlier run do not match again.
+ */
+@Component
+public class CatalogVersion {
+
+    private final long startVersion = System.currentTimeMillis();
+
+    private final AtomicLong version = new AtomicLong(startVersion);
+
+    /**
+     * Runs after the book caches and the snapshot have the change and before the encoded responses
+     * are dropped, so nothing encoded from the old books is cached under the new version.
+     */
+    @Order(BookChangedEvent.DERIVED_LISTENER_ORDER - 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        increment();
+    }
+
+    @Order(BookChangedEvent.DERIVED_LISTENER_ORDER - 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        increment();
+    }
+
+    public long increment() {
+        return version.incrementAndGet();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * The version this run started at. ETags derived from the versions of single books carry it,
+     * because the reseeded table starts the book versions again after a restart.
+     */
+    public long getStartVersion() {
+        return startVersion;
+    }
+}
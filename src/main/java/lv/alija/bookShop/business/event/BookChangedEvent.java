@@ -0,0 +1,55 @@
+package lv.alija.bookShop.business.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lv.alija.bookShop.model.Book;
+import org.springframework.core.Ordered;
+
+/**
+ * Published by the book service after a book is saved, updated or deleted.
+ * Carries the new state of the book, or no book at all when it is deleted.
+ * {@link Type#STOCK} is an update that only changed the quantity through the inventory endpoints.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class BookChangedEvent {
+
+    /**
+     * Order of the listeners that keep the books themselves: the caches, the snapshot and the read coalescer.
+     */
+    public static final int DATA_LISTENER_ORDER = 0;
+
+    /**
+     * Order of the listeners of data built from the books, such as the encoded JSON responses.
+     * They run after the data listeners, so nothing is rebuilt from books that miss the change.
+     */
+    public static final int DERIVED_LISTENER_ORDER = Ordered.LOWEST_PRECEDENCE;
+
+    public enum Type {
+        SAVED, UPDATED, STOCK, DELETED
+    }
+
+    private final Type type;
+
+    private final Long id;
+
+    private final Book book;
+
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(Type.SAVED, book.getId(), book);
+    }
+
+    public static BookChangedEvent updated(Book book) {
+        return new BookChangedEvent(Type.UPDATED, book.getId(), book);
+    }
+
+    public static BookChangedEvent stock(Book book) {
+        return new BookChangedEvent(Type.STOCK, book.getId(), book);
+    }
+
+    public static BookChangedEvent deleted(Long id) {
+        return new BookChangedEvent(Type.DELETED, id, null);
+    }
+}
@@ -0,0 +1,21 @@
+package lv.alija.bookShop.business.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lv.alija.bookShop.model.Book;
+
+import java.util.List;
+
+/**
+ * Published when the stock of several books changed at once, such as by a flush of the inventory counters.
+ * Carries the books with their new stock, nothing else of them changed. Listeners apply it as one batch,
+ * in the same order as {@link BookChangedEvent}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class StockChangedEvent {
+
+    private final List<Book> books;
+}
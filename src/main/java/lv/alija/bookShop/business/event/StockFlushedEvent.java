@@ -0,0 +1,22 @@
+package lv.alija.bookShop.business.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Map;
+
+/**
+ * Published by the inventory counters after their stock is written to the book table.
+ * Carries the stock of every written book by its id, read after the write, and the version
+ * the write gave the book.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class StockFlushedEvent {
+
+    private final Map<Long, Long> stocks;
+
+    private final Map<Long, Long> versions;
+}
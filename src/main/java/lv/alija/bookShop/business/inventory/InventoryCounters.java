@@ -0,0 +1,295 @@
+package lv.alija.bookShop.business.inventory;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.catalog.CatalogGeneration;
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockFlushedEvent;
+import lv.alija.bookShop.business.repository.BookGenerationRepositoryImpl;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stock of every book held in memory, one counter per book id, so reservations of different books never
+ * contend and reservations of the same book are a CAS loop instead of a row lock.
+ * The net change of each counter is written behind to the book table in one JDBC batch per interval
+ * and once more at shutdown. The batch runs in one transaction, so it is written completely or not at all,
+ * and increases the catalog generation in the same transaction when it is enabled, as it publishes no book change.
+ * The table stays the source of truth after a restart: counters are reloaded from it when the application
+ * is ready, or on the first reservation of a book.
+ * Reservations publish no events, the books read elsewhere follow the stock once per flush
+ * through a {@link StockFlushedEvent}.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bookshop.inventory.mode", havingValue = "memory")
+public class InventoryCounters {
+
+    private static final String SELECT_ALL = "SELECT id, quantity FROM book";
+
+    private static final String SELECT_ONE = "SELECT quantity FROM book WHERE id = ?";
+
+    /**
+     * The version is increased like by every other write of the quantity, so a PUT with a version read
+     * before the flush is answered with 409 instead of writing back the stock without the flushed reservations.
+     */
+    private static final String APPLY_DELTA = "UPDATE book SET quantity = quantity + ?, version = version + 1 WHERE id = ?";
+
+    private static final String SELECT_VERSIONS = "SELECT id, version FROM book WHERE id IN (";
+
+    private static final int VERSIONS_PER_QUERY = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final CatalogGeneration catalogGeneration;
+
+    private final Map<Long, Stock> stocks = new ConcurrentHashMap<>();
+
+    private final LongAdder flushedDeltas = new LongAdder();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        jdbcTemplate.query(SELECT_ALL, rs -> {
+            stocks.putIfAbsent(rs.getLong("id"), new Stock(rs.getLong("quantity")));
+        });
+        log.info("Inventory counters are loaded for {} books", stocks.size());
+    }
+
+    /**
+     * Takes {@code quantity} books from the stock if there are enough of them.
+     * Returns the stock left, or empty if the book is missing or the stock is too low.
+     */
+    public OptionalLong take(Long id, long quantity) {
+        Stock stock = stock(id);
+        if (stock == null) {
+            return OptionalLong.empty();
+        }
+        long available = stock.available.get();
+        while (available >= quantity) {
+            if (stock.available.compareAndSet(available, available - quantity)) {
+                stock.pending.addAndGet(-quantity);
+                return OptionalLong.of(available - quantity);
+            }
+            available = stock.available.get();
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Returns books to the stock. Returns the new stock, or empty if the book is missing.
+     *
+     * @throws ArithmeticException if the stock would overflow, the stock is then left as it was
+     */
+    public OptionalLong give(Long id, long quantity) {
+        Stock stock = stock(id);
+        if (stock == null) {
+            return OptionalLong.empty();
+        }
+        long available = stock.available.get();
+        long updated = Math.addExact(available, quantity);
+        while (!stock.available.compareAndSet(available, updated)) {
+            available = stock.available.get();
+            updated = Math.addExact(available, quantity);
+        }
+        stock.pending.addAndGet(quantity);
+        return OptionalLong.of(updated);
+    }
+
+    public boolean contains(Long id) {
+        return stock(id) != null;
+    }
+
+    public long getFlushedDeltas() {
+        return flushedDeltas.sum();
+    }
+
+    /**
+     * Writes the net change of every counter since the last flush as one batch and publishes
+     * the stock of the written books. Events are published under the flush lock, so listeners
+     * see the stock of a book in the order it changed.
+     */
+    @Scheduled(fixedDelayString = "${bookshop.inventory.flush-ms:1000}")
+    public synchronized void flush() {
+        StockFlushedEvent written = write();
+        if (written != null) {
+            eventPublisher.publishEvent(written);
+        }
+    }
+
+    /**
+     * The listeners may be gone at shutdown, the last batch is only written.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        write();
+    }
+
+    /**
+     * A failed batch is rolled back as a whole, added back to the counters and retried on the next flush.
+     * Returns the stock and the new version of the written books, or null if nothing is written.
+     */
+    private StockFlushedEvent write() {
+        List<Object[]> deltas = new ArrayList<>();
+        stocks.forEach((id, stock) -> {
+            long delta = stock.pending.getAndSet(0);
+            if (delta != 0) {
+                deltas.add(new Object[]{delta, id});
+            }
+        });
+        if (deltas.isEmpty()) {
+            return null;
+        }
+        Map<Long, Long> written = new LinkedHashMap<>();
+        Map<Long, Long> versions;
+        try {
+            versions = transactionTemplate.execute(status -> {
+                jdbcTemplate.batchUpdate(APPLY_DELTA, deltas);
+                if (catalogGeneration.isEnabled()) {
+                    jdbcTemplate.update(BookGenerationRepositoryImpl.INCREMENT_GENERATION);
+                }
+                return versions(deltas);
+            });
+            flushedDeltas.add(deltas.size());
+            for (Object[] delta : deltas) {
+                Stock stock = stocks.get((Long) delta[1]);
+                if (stock != null) {
+                    stock.stored += (Long) delta[0];
+                    written.put((Long) delta[1], stock.available.get());
+                }
+            }
+            log.debug("Stock of {} books is written to the table", deltas.size());
+        } catch (RuntimeException e) {
+            for (Object[] delta : deltas) {
+                Stock stock = stocks.get((Long) delta[1]);
+                if (stock != null) {
+                    stock.pending.addAndGet((Long) delta[0]);
+                }
+            }
+            log.error("Stock of {} books is not written to the table, will retry", deltas.size(), e);
+            return null;
+        }
+        return written.isEmpty() ? null : new StockFlushedEvent(written, versions);
+    }
+
+    /**
+     * Reads the versions the batch gave the books, in its transaction, a few hundred ids per query.
+     */
+    private Map<Long, Long> versions(List<Object[]> deltas) {
+        Map<Long, Long> versions = new HashMap<>();
+        for (int from = 0; from < deltas.size(); from += VERSIONS_PER_QUERY) {
+            List<Object[]> chunk = deltas.subList(from, Math.min(from + VERSIONS_PER_QUERY, deltas.size()));
+            Object[] ids = chunk.stream().map(delta -> delta[1]).toArray();
+            String placeholders = String.join(", ", Collections.nCopies(ids.length, "?"));
+            jdbcTemplate.query(SELECT_VERSIONS + placeholders + ")", rs -> {
+                versions.put(rs.getLong("id"), rs.getLong("version"));
+            }, ids);
+        }
+        return versions;
+    }
+
+    /**
+     * Follows writes made through the book service. The table then holds the new quantity,
+     * and the deltas that are not flushed yet will still be added to it.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        switch (event.getType()) {
+            case SAVED:
+                stocks.put(event.getId(), new Stock(quantityOf(event)));
+                break;
+            case UPDATED:
+                Stock stock = stocks.get(event.getId());
+                if (stock != null) {
+                    update(event.getId(), stock);
+                }
+                break;
+            case DELETED:
+                stocks.remove(event.getId());
+                break;
+            default:
+                // STOCK events come from the counters themselves
+                break;
+        }
+    }
+
+    /**
+     * Moves the counter by the change of the table quantity instead of setting it, so reservations
+     * taken meanwhile are kept. The quantity is read from the table under the flush lock rather than taken
+     * from the event: a flush may have added its deltas on top of the updated quantity before the event came.
+     */
+    private synchronized void update(Long id, Stock stock) {
+        List<Long> quantities = jdbcTemplate.queryForList(SELECT_ONE, Long.class, id);
+        if (quantities.isEmpty()) {
+            return;
+        }
+        long quantity = quantities.get(0) == null ? 0 : quantities.get(0);
+        stock.available.addAndGet(quantity - stock.stored);
+        stock.stored = quantity;
+    }
+
+    private Stock stock(Long id) {
+        Stock stock = stocks.get(id);
+        if (stock != null) {
+            return stock;
+        }
+        List<Long> quantities = jdbcTemplate.queryForList(SELECT_ONE, Long.class, id);
+        if (quantities.isEmpty()) {
+            return null;
+        }
+        Long quantity = quantities.get(0);
+        Stock loaded = new Stock(quantity == null ? 0 : quantity);
+        Stock previous = stocks.putIfAbsent(id, loaded);
+        return previous != null ? previous : loaded;
+    }
+
+    private static long quantityOf(BookChangedEvent event) {
+        Long quantity = event.getBook().getQuantity();
+        return quantity == null ? 0 : quantity;
+    }
+
+    private static final class Stock {
+
+        private final AtomicLong available;
+
+        /**
+         * Net change since the last flush. An AtomicLong instead of a LongAdder, because the flusher
+         * has to read and reset it atomically, and LongAdder.sumThenReset can lose concurrent adds.
+         */
+        private final AtomicLong pending = new AtomicLong();
+
+        /**
+         * Quantity in the table as far as the counters know, the available stock is this plus the pending change.
+         * Guarded by the lock of the counters.
+         */
+        private long stored;
+
+        private Stock(long quantity) {
+            this.available = new AtomicLong(quantity);
+            this.stored = quantity;
+        }
+    }
+}
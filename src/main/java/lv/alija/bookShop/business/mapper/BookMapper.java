@@ -3,12 +3,18 @@ package lv.alija.bookShop.business.mapper;
 import lv.alija.bookShop.business.repository.model.BookDAO;
 import lv.alija.bookShop.model.Book;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface BookMapper {
 
+    @Mapping(target = "authorNormalized", ignore = true)
+    @Mapping(target = "isbnNormalized", ignore = true)
+    @Mapping(target = "genreNormalized", ignore = true)
     BookDAO bookToBookDAO(Book book);
 
     Book bookDAOToBook(BookDAO bookDAO);
 
+    Book copyBook(Book book);
+
 }
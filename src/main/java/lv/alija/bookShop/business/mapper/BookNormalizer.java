@@ -0,0 +1,18 @@
+package lv.alija.bookShop.business.mapper;
+
+import java.util.Locale;
+
+/**
+ * Java side of the author_normalized, genre_normalized and isbn_normalized columns, which are LOWER(TRIM(...))
+ * of their source columns. Every in-memory lookup and cache key by author or isbn and every filter by author or genre
+ * goes through it, so they agree with the database.
+ */
+public final class BookNormalizer {
+
+    private BookNormalizer() {
+    }
+
+    public static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,13 @@
+package lv.alija.bookShop.business.repository;
+
+import java.util.List;
+import java.util.Map;
+
+public interface BookFieldsRepository {
+
+    /**
+     * Selects only the given properties of every book, ordered by id.
+     * Each book is a map from property name to value, in the order of {@code fields}.
+     */
+    List<Map<String, Object>> findAllFields(List<String> fields);
+}
@@ -0,0 +1,43 @@
+package lv.alija.bookShop.business.repository;
+
+import lombok.RequiredArgsConstructor;
+import lv.alija.bookShop.business.repository.model.BookDAO;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Tuple query over the requested columns only, so a narrow list does not read, allocate or serialize
+ * the columns the client did not ask for. The property names must be checked by the caller.
+ */
+@RequiredArgsConstructor
+public class BookFieldsRepositoryImpl implements BookFieldsRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findAllFields(List<String> fields) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<BookDAO> root = query.from(BookDAO.class);
+        List<Selection<?>> selections = fields.stream()
+                .<Selection<?>>map(field -> root.get(field).alias(field))
+                .collect(Collectors.toList());
+        query.multiselect(selections).orderBy(builder.asc(root.get("id")));
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(tuple -> {
+                    Map<String, Object> book = new LinkedHashMap<>();
+                    fields.forEach(field -> book.put(field, tuple.get(field)));
+                    return book;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,16 @@
+package lv.alija.bookShop.business.repository;
+
+import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.model.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface BookFilterRepository {
+
+    /**
+     * Selects one page of the books matching the specification, in the order of the pageable.
+     * Whether there is a next page is told by one extra row instead of a count query.
+     */
+    Slice<Book> findBookSlice(Specification<BookDAO> specification, Pageable pageable);
+}
@@ -0,0 +1,49 @@
+package lv.alija.bookShop.business.repository;
+
+import lombok.RequiredArgsConstructor;
+import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.model.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+/**
+ * Criteria query straight into {@link Book}, like {@link BookRepository#SELECT_BOOKS}: one round trip
+ * per page, with no count query and no managed entities. The sort properties must be checked by the caller.
+ */
+@RequiredArgsConstructor
+public class BookFilterRepositoryImpl implements BookFilterRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Slice<Book> findBookSlice(Specification<BookDAO> specification, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = builder.createQuery(Book.class);
+        Root<BookDAO> root = query.from(BookDAO.class);
+        query.select(builder.construct(Book.class, root.get("id"), root.get("title"), root.get("author"),
+                root.get("genre"), root.get("releaseYear"), root.get("isbn"), root.get("quantity"),
+                root.get("price"), root.get("version")));
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(toOrders(pageable.getSort(), root, builder));
+        List<Book> books = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = books.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? books.subList(0, pageable.getPageSize()) : books, pageable, hasNext);
+    }
+}
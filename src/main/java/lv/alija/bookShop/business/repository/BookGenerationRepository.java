@@ -0,0 +1,15 @@
+package lv.alija.bookShop.business.repository;
+
+public interface BookGenerationRepository {
+
+    /**
+     * Generation of the catalog, see CATALOG_GENERATION in db/schema.sql.
+     */
+    long findCatalogGeneration();
+
+    /**
+     * Increases the generation of the catalog in the transaction of the caller, which holds the row lock
+     * of the generation until it ends.
+     */
+    void incrementCatalogGeneration();
+}
@@ -0,0 +1,29 @@
+package lv.alija.bookShop.business.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Reads and increases the single row of the catalog generation, no book is read.
+ */
+@RequiredArgsConstructor
+public class BookGenerationRepositoryImpl implements BookGenerationRepository {
+
+    public static final String INCREMENT_GENERATION =
+            "UPDATE catalog_generation SET generation = generation + 1 WHERE id = 1";
+
+    private static final String SELECT_GENERATION = "SELECT generation FROM catalog_generation WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long findCatalogGeneration() {
+        Long generation = jdbcTemplate.queryForObject(SELECT_GENERATION, Long.class);
+        return generation == null ? 0 : generation;
+    }
+
+    @Override
+    public void incrementCatalogGeneration() {
+        jdbcTemplate.update(INCREMENT_GENERATION);
+    }
+}
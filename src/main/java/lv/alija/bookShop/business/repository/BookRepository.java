@@ -1,13 +1,126 @@
 package lv.alija.bookShop.business.repository;
 
 import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.model.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface BookRepository extends JpaRepository<BookDAO, Long> {
+public interface BookRepository extends JpaRepository<BookDAO, Long>, JpaSpecificationExecutor<BookDAO>,
+        BookFieldsRepository, BookFilterRepository, BookGenerationRepository {
+
+   /**
+    * Selects the columns straight into {@link Book}. No entity is managed, so there is no
+    * persistence context entry, dirty checking snapshot or mapping copy per row.
+    */
+   String SELECT_BOOKS = "SELECT new lv.alija.bookShop.model.Book(b.id, b.title, b.author, b.genre, " +
+           "b.releaseYear, b.isbn, b.quantity, b.price, b.version) FROM BookDAO b";
+
+   @Transactional(readOnly = true)
+   @Query(SELECT_BOOKS + " ORDER BY b.id")
+   List<Book> findAllBooks();
+
+   /**
+    * Case-insensitive: seeks the author_normalized index.
+    */
+   @Transactional(readOnly = true)
+   @Query(SELECT_BOOKS + " WHERE b.authorNormalized = LOWER(TRIM(:author)) ORDER BY b.id")
+   List<Book> findByAuthor(@Param("author") String author);
+
+   @Transactional(readOnly = true)
+   @Query(SELECT_BOOKS + " WHERE b.id = :id")
+   Optional<Book> findBookById(@Param("id") Long id);
+
+   @Query(SELECT_BOOKS)
+   Slice<Book> findAllBy(Pageable pageable);
+
+   /**
+    * Keyset pagination: seeks the primary key index from the cursor instead of
+    * skipping offset rows, so every page costs the same regardless of its depth.
+    */
+   @Query(SELECT_BOOKS + " WHERE b.id > :afterId")
+   Slice<Book> findByIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
+
+   /**
+    * Updates the book in one statement, without loading it first. Returns the number of updated rows.
+    */
+   @Modifying(flushAutomatically = true, clearAutomatically = true)
+   @Query("UPDATE BookDAO b SET b.title = :#{#book.title}, b.author = :#{#book.author}, " +
+           "b.genre = :#{#book.genre}, b.releaseYear = :#{#book.releaseYear}, b.isbn = :#{#book.isbn}, " +
+           "b.quantity = :#{#book.quantity}, b.price = :#{#book.price}, b.version = b.version + 1 " +
+           "WHERE b.id = :#{#book.id}")
+   int updateBook(@Param("book") BookDAO book);
+
+   /**
+    * Same as {@link #updateBook(BookDAO)}, but only while the stored version equals the version of the book.
+    */
+   @Modifying(flushAutomatically = true, clearAutomatically = true)
+   @Query("UPDATE BookDAO b SET b.title = :#{#book.title}, b.author = :#{#book.author}, " +
+           "b.genre = :#{#book.genre}, b.releaseYear = :#{#book.releaseYear}, b.isbn = :#{#book.isbn}, " +
+           "b.quantity = :#{#book.quantity}, b.price = :#{#book.price}, b.version = b.version + 1 " +
+           "WHERE b.id = :#{#book.id} AND b.version = :#{#book.version}")
+   int updateBookIfVersion(@Param("book") BookDAO book);
+
+   @Query("SELECT b.version FROM BookDAO b WHERE b.id = :id")
+   Optional<Long> findVersionById(@Param("id") Long id);
+
+   @Modifying(flushAutomatically = true, clearAutomatically = true)
+   @Query("DELETE FROM BookDAO b WHERE b.id = :id")
+   int deleteBookById(@Param("id") Long id);
+
+   /**
+    * Takes books from the stock only if there are enough of them, as a single conditional UPDATE,
+    * so concurrent reservations can not oversell. Returns 0 if the book is missing or the stock is too low.
+    */
+   @Modifying(flushAutomatically = true, clearAutomatically = true)
+   @Query("UPDATE BookDAO b SET b.quantity = b.quantity - :quantity, b.version = b.version + 1 " +
+           "WHERE b.id = :id AND b.quantity >= :quantity")
+   int reserveQuantity(@Param("id") Long id, @Param("quantity") long quantity);
+
+   /**
+    * Returns books to the stock only if the stock does not overflow, as a single conditional UPDATE.
+    * Returns 0 if the book is missing or the stock would overflow.
+    */
+   @Modifying(flushAutomatically = true, clearAutomatically = true)
+   @Query("UPDATE BookDAO b SET b.quantity = b.quantity + :quantity, b.version = b.version + 1 " +
+           "WHERE b.id = :id AND b.quantity <= :#{T(java.lang.Long).MAX_VALUE} - :quantity")
+   int releaseQuantity(@Param("id") Long id, @Param("quantity") long quantity);
+
+   /**
+    * Forward-only cursor over the whole table. Must be consumed inside a transaction
+    * and closed by the caller.
+    */
+   @QueryHints(value = {
+           @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+           @QueryHint(name = HINT_READONLY, value = "true")})
+   @Query("SELECT b FROM BookDAO b ORDER BY b.id")
+   Stream<BookDAO> streamAllBy();
+
+   /**
+    * Checks the unique isbn_normalized index, so the lookup is an index seek
+    * instead of a scan over every book.
+    */
+   @Transactional(readOnly = true)
+   @Query("SELECT COUNT(b) > 0 FROM BookDAO b WHERE b.isbnNormalized = LOWER(TRIM(:isbn))")
+   boolean existsByIsbnIgnoreCase(@Param("isbn") String isbn);
 
-   List<BookDAO> findByAuthor(String author);
+   @Query("SELECT b.isbnNormalized FROM BookDAO b WHERE b.isbnNormalized IN (:isbns)")
+   List<String> findExistingNormalizedIsbns(@Param("isbns") Collection<String> normalizedIsbns);
 }
@@ -0,0 +1,55 @@
+package lv.alija.bookShop.business.repository;
+
+import lv.alija.bookShop.business.mapper.BookNormalizer;
+import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.model.BookFilter;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Criteria for {@link BookRepository#findBookSlice(Specification, org.springframework.data.domain.Pageable)}.
+ * Every criterion is a plain comparison of one column, so the filter is evaluated by the database
+ * with the composite indexes from schema.sql.
+ */
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    /**
+     * Combines the criteria of the filter that are set. An empty filter matches every book.
+     */
+    public static Specification<BookDAO> matching(BookFilter filter) {
+        return Specification.where(hasGenre(filter.getGenre()))
+                .and(hasAuthor(filter.getAuthor()))
+                .and(between("releaseYear", filter.getMinReleaseYear(), filter.getMaxReleaseYear()))
+                .and(between("price", filter.getMinPrice(), filter.getMaxPrice()))
+                .and(Boolean.TRUE.equals(filter.getInStock()) ? inStock() : null);
+    }
+
+    public static Specification<BookDAO> hasGenre(String genre) {
+        return genre == null ? null
+                : (root, query, builder) -> builder.equal(root.get("genreNormalized"), BookNormalizer.normalize(genre));
+    }
+
+    public static Specification<BookDAO> hasAuthor(String author) {
+        return author == null ? null
+                : (root, query, builder) -> builder.equal(root.get("authorNormalized"), BookNormalizer.normalize(author));
+    }
+
+    public static Specification<BookDAO> inStock() {
+        return (root, query, builder) -> builder.greaterThan(root.get("quantity"), 0L);
+    }
+
+    static Specification<BookDAO> between(String attribute, Long min, Long max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        if (max == null) {
+            return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get(attribute), min);
+        }
+        if (min == null) {
+            return (root, query, builder) -> builder.lessThanOrEqualTo(root.get(attribute), max);
+        }
+        return (root, query, builder) -> builder.between(root.get(attribute), min, max);
+    }
+}
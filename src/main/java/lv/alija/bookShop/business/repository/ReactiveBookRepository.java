@@ -0,0 +1,95 @@
+package lv.alija.bookShop.business.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Row;
+import lv.alija.bookShop.business.mapper.BookMapper;
+import lv.alija.bookShop.business.mapper.BookNormalizer;
+import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.model.Book;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads of the book table over R2DBC, mirroring the read queries of {@link BookRepository}.
+ * Rows are mapped through {@link BookMapper}, so both stacks return the same {@link Book}.
+ * The connection pool is owned here and is not a bean: a ConnectionFactory bean would make Spring Boot
+ * back off from the JDBC DataSource the rest of the application runs on.
+ */
+@Repository
+@ConditionalOnProperty(name = "bookshop.reactive.enabled", havingValue = "true")
+public class ReactiveBookRepository implements DisposableBean {
+
+    static final String SELECT_BOOKS = "SELECT id, title, author, genre, release_year, isbn, quantity, price, version FROM book";
+
+    private final ConnectionPool connectionPool;
+
+    private final DatabaseClient databaseClient;
+
+    private final BookMapper bookMapper;
+
+    public ReactiveBookRepository(@Value("${bookshop.reactive.r2dbc-url}") String url,
+                                  @Value("${spring.datasource.username:sa}") String username,
+                                  @Value("${spring.datasource.password:}") String password,
+                                  @Value("${bookshop.reactive.max-connections:10}") int maxConnections,
+                                  BookMapper bookMapper) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(maxConnections)
+                .build());
+        this.databaseClient = DatabaseClient.create(connectionPool);
+        this.bookMapper = bookMapper;
+    }
+
+    public Flux<Book> findAllBooks() {
+        return databaseClient.sql(SELECT_BOOKS + " ORDER BY id")
+                .map(this::toBook)
+                .all();
+    }
+
+    /**
+     * Case-insensitive: seeks the author_normalized index.
+     */
+    public Flux<Book> findByAuthor(String author) {
+        return databaseClient.sql(SELECT_BOOKS + " WHERE author_normalized = :author ORDER BY id")
+                .bind("author", BookNormalizer.normalize(author))
+                .map(this::toBook)
+                .all();
+    }
+
+    public Mono<Book> findById(Long id) {
+        return databaseClient.sql(SELECT_BOOKS + " WHERE id = :id")
+                .bind("id", id)
+                .map(this::toBook)
+                .one();
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    private Book toBook(Row row) {
+        BookDAO bookDAO = new BookDAO();
+        bookDAO.setId(row.get("id", Long.class));
+        bookDAO.setTitle(row.get("title", String.class));
+        bookDAO.setAuthor(row.get("author", String.class));
+        bookDAO.setGenre(row.get("genre", String.class));
+        bookDAO.setReleaseYear(row.get("release_year", Long.class));
+        bookDAO.setIsbn(row.get("isbn", String.class));
+        bookDAO.setQuantity(row.get("quantity", Long.class));
+        bookDAO.setPrice(row.get("price", Long.class));
+        bookDAO.setVersion(row.get("version", Long.class));
+        return bookMapper.bookDAOToBook(bookDAO);
+    }
+}
@@ -8,7 +8,9 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Data
 @NoArgsConstructor
@@ -17,7 +19,8 @@ import javax.persistence.Table;
 public class BookDAO {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", initialValue = 3, allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -27,19 +30,41 @@ public class BookDAO {
     @Column(name = "author")
     private String author;
 
+    /**
+     * Computed by the database from author, see schema.sql.
+     */
+    @Column(name = "author_normalized", insertable = false, updatable = false)
+    private String authorNormalized;
+
     @Column(name = "genre")
     private String genre;
 
+    /**
+     * Computed by the database from genre, see schema.sql.
+     */
+    @Column(name = "genre_normalized", insertable = false, updatable = false)
+    private String genreNormalized;
+
     @Column(name = "release_year")
     private Long releaseYear;
 
     @Column(name = "isbn")
     private String isbn;
 
+    /**
+     * Computed by the database from isbn, see schema.sql.
+     */
+    @Column(name = "isbn_normalized", insertable = false, updatable = false)
+    private String isbnNormalized;
+
     @Column(name = "quantity")
     private Long quantity;
 
     @Column(name = "price")
     private Long price;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
 }
@@ -0,0 +1,251 @@
+package lv.alija.bookShop.business.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.model.Book;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index over the title, author and genre of every book. Tokens are kept in a sorted map,
+ * so the tokens starting with a prefix are one contiguous range of it, which makes typeahead a range
+ * scan instead of a scan over all books. Built once the application is ready and kept up to date
+ * from {@link BookChangedEvent}s.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndex {
+
+    static final int TITLE_WEIGHT = 3;
+
+    static final int AUTHOR_WEIGHT = 2;
+
+    static final int GENRE_WEIGHT = 1;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Higher score first, then lower id.
+     */
+    private static final Comparator<Map.Entry<Long, Integer>> RANKING =
+            Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey());
+
+    private final BookRepository bookRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Token to the ids of the books containing it, with the summed weight of the fields it occurs in.
+     */
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    private final Map<Long, Book> books = new HashMap<>();
+
+    /**
+     * The table is read under the write lock, so changes committed meanwhile wait for the load and are
+     * applied after it, and applying a change the table already holds gives the same index.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        List<Book> loaded;
+        lock.writeLock().lock();
+        try {
+            loaded = bookRepository.findAllBooks();
+            books.clear();
+            postings.clear();
+            loaded.forEach(book -> {
+                books.put(book.getId(), book);
+                add(book);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index is loaded. Books: {}, tokens: {}, took {} ms", loaded.size(), postings.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event.getId(), event.getBook());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            event.getBooks().forEach(book -> apply(book.getId(), book));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the books containing every token of the query, either as a whole word or as the start of one.
+     * A whole word match scores twice its field weight, a prefix match scores the field weight once.
+     * Books are ordered by score and then by id.
+     */
+    public List<Book> search(String query, int limit) {
+        Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = null;
+            for (String token : tokens) {
+                Map<Long, Integer> tokenScores = score(token);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            return top(scores, limit).stream()
+                    .map(entry -> books.get(entry.getKey()))
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code limit} best entries, best first. A heap holding at most {@code limit} entries with the
+     * worst of them on top keeps the read lock for n log limit instead of sorting every match.
+     */
+    private static List<Map.Entry<Long, Integer>> top(Map<Long, Integer> scores, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Map.Entry<Long, Integer>> worstFirst = new PriorityQueue<>(Math.min(limit, scores.size()),
+                RANKING.reversed());
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            if (worstFirst.size() < limit) {
+                worstFirst.add(entry);
+            } else if (RANKING.compare(entry, worstFirst.peek()) < 0) {
+                worstFirst.poll();
+                worstFirst.add(entry);
+            }
+        }
+        List<Map.Entry<Long, Integer>> top = new ArrayList<>(worstFirst);
+        top.sort(RANKING);
+        return top;
+    }
+
+    private Map<Long, Integer> score(String token) {
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Long, Integer>> entry
+                : postings.subMap(token, true, token + Character.MAX_VALUE, true).entrySet()) {
+            int factor = entry.getKey().equals(token) ? 2 : 1;
+            entry.getValue().forEach((id, weight) -> scores.merge(id, weight * factor, Math::max));
+        }
+        return scores;
+    }
+
+    /**
+     * Replaces the book with the given id, or removes it when {@code book} is null. Holds the write lock.
+     */
+    private void apply(Long id, Book book) {
+        Book previous = books.remove(id);
+        if (previous != null) {
+            remove(previous);
+        }
+        if (book != null) {
+            books.put(id, book);
+            add(book);
+        }
+    }
+
+    private void add(Book book) {
+        weights(book).forEach((token, weight) ->
+                postings.computeIfAbsent(token, key -> new HashMap<>()).put(book.getId(), weight));
+    }
+
+    private void remove(Book book) {
+        for (String token : weights(book).keySet()) {
+            Map<Long, Integer> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(book.getId());
+                if (ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    private static Map<String, Integer> weights(Book book) {
+        Map<String, Integer> weights = new HashMap<>();
+        addWeights(weights, book.getTitle(), TITLE_WEIGHT);
+        addWeights(weights, book.getAuthor(), AUTHOR_WEIGHT);
+        addWeights(weights, book.getGenre(), GENRE_WEIGHT);
+        return weights;
+    }
+
+    private static void addWeights(Map<String, Integer> weights, String text, int weight) {
+        tokenize(text).forEach(token -> weights.merge(token, weight, Integer::sum));
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Collection<String> tokens() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(postings.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
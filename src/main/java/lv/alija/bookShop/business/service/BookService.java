@@ -1,22 +1,39 @@
 package lv.alija.bookShop.business.service;
 
 import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.BookBatchResult;
+import lv.alija.bookShop.model.BookFilter;
+import lv.alija.bookShop.model.BookSlice;
 
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BookService {
 
     List<Book> findAllBooks();
 
+    List<Map<String, Object>> findBookFields(List<String> fields);
+
+    BookSlice findBookSlice(Long afterId, int page, int size);
+
+    BookSlice filterBooks(BookFilter filter, String sort, int page, int size);
+
+    void exportBooks(Consumer<Book> consumer);
+
     Optional<Book> findBookById(Long id);
 
     Book saveBook(Book book) throws Exception;
 
+    List<BookBatchResult> saveBooks(List<Book> books);
+
     void deleteBookById(Long id);
 
     Book updateBook(Book book, Long id) throws Exception;
 
     List<Book> findByAuthor(String author);
+
+    List<Book> searchBooks(String query, int limit);
 }
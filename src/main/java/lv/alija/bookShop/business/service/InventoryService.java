@@ -0,0 +1,15 @@
+package lv.alija.bookShop.business.service;
+
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.Reservation;
+
+import java.util.List;
+
+public interface InventoryService {
+
+    Book reserve(Long id, long quantity);
+
+    Book release(Long id, long quantity);
+
+    List<Book> reserveAll(List<Reservation> reservations);
+}
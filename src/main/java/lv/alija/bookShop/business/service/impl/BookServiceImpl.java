@@ -2,54 +2,230 @@ package lv.alija.bookShop.business.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.catalog.CatalogSnapshotService;
+import lv.alija.bookShop.business.event.BookChangedEvent;
 import lv.alija.bookShop.business.mapper.BookMapper;
+import lv.alija.bookShop.business.mapper.BookNormalizer;
 import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.business.repository.BookSpecifications;
 import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.business.search.BookSearchIndex;
 import lv.alija.bookShop.business.service.BookService;
+import lv.alija.bookShop.caching.BookCatalogCache;
 import lv.alija.bookShop.exception.BookControllerException;
 import lv.alija.bookShop.model.Book;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import lv.alija.bookShop.model.BookBatchResult;
+import lv.alija.bookShop.model.BookFilter;
+import lv.alija.bookShop.model.BookSlice;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Log4j2
 @Service
 @RequiredArgsConstructor
 public class BookServiceImpl implements BookService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    public static final int MAX_SEARCH_LIMIT = 100;
+
+    /**
+     * Name of the unique index on the normalized isbn in db/schema.sql.
+     */
+    private static final String ISBN_INDEX = "UX_BOOK_ISBN_NORMALIZED";
+
+    private static final Set<String> SORTABLE_PROPERTIES = new LinkedHashSet<>(
+            Arrays.asList("id", "title", "author", "genre", "releaseYear", "quantity", "price"));
+
+    private static final Set<String> BOOK_PROPERTIES = new LinkedHashSet<>(
+            Arrays.asList("id", "title", "author", "genre", "releaseYear", "isbn", "quantity", "price", "version"));
+
     private final BookRepository bookRepository;
 
     private final BookMapper bookMapper;
 
-    @Cacheable(value = "bookList")
-    @Scheduled(fixedDelay = 300000)
+    private final EntityManager entityManager;
+
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    private final BookSearchIndex bookSearchIndex;
+
+    private final BookCatalogCache bookCatalogCache;
+
+    /**
+     * The list queries select straight into {@link Book} without managing an entity per row.
+     * Concurrent cache misses share one load. There is no transaction around the wait: every waiting
+     * request would hold a connection, the query runs in the read-only transaction declared on the
+     * repository. The same goes for the lookups by author and by id, which a snapshot or cache hit
+     * answers without any connection.
+     */
     @Override
     public List<Book> findAllBooks() {
-        List<BookDAO> booksDAO = bookRepository.findAll();
-        log.info("Get book list. Size is : {}", booksDAO::size);
-        if (booksDAO.isEmpty()) {
+        List<Book> books = bookCatalogCache.bookList(bookRepository::findAllBooks);
+        log.info("Get book list. Size is : {}", books::size);
+        if (books.isEmpty()) {
+            log.warn("Books list is not found. ");
+            throw new BookControllerException(HttpStatus.NOT_FOUND, "Book list is empty");
+        }
+        return books;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<Map<String, Object>> findBookFields(List<String> fields) {
+        if (fields == null || fields.isEmpty() || !BOOK_PROPERTIES.containsAll(fields)
+                || new HashSet<>(fields).size() != fields.size()) {
+            log.warn("Book fields {} are not valid. ", fields);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST,
+                    "Fields should be distinct values of " + BOOK_PROPERTIES);
+        }
+        List<Map<String, Object>> books = bookRepository.findAllFields(fields);
+        log.info("Get book list with fields {}. Size is : {}", fields, books.size());
+        if (books.isEmpty()) {
             log.warn("Books list is not found. ");
             throw new BookControllerException(HttpStatus.NOT_FOUND, "Book list is empty");
         }
-        return booksDAO.stream().map(bookMapper::bookDAOToBook)
-                .collect(Collectors.toList());
+        return books;
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public BookSlice findBookSlice(Long afterId, int page, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE || page < 0 || (afterId != null && afterId < 0)) {
+            log.warn("Book page is not valid: afterId {}, page {}, size {}. ", afterId, page, size);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST,
+                    "Page size should be from 1 to " + MAX_PAGE_SIZE + ", page and afterId should not be negative");
+        }
+        Slice<Book> slice;
+        if (afterId != null) {
+            slice = bookRepository.findByIdGreaterThan(afterId, PageRequest.of(0, size, Sort.by("id")));
+        } else {
+            Pageable pageable = PageRequest.of(page, size, Sort.by("id"));
+            slice = bookRepository.findAllBy(pageable);
+        }
+        List<Book> books = slice.getContent();
+        Long next = slice.hasNext() ? books.get(books.size() - 1).getId() : null;
+        log.info("Get book page after id {}, page {}. Size is : {}", afterId, page, books.size());
+        return new BookSlice(books, size, slice.hasNext(), next);
+    }
+
+    /**
+     * Filters, sorts and pages in the database. Ties are ordered by id, so pages are stable.
+     * The offset of the page is passed to the query as an int, deeper pages are rejected.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public BookSlice filterBooks(BookFilter filter, String sort, int page, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE || page < 0 || !isValidRange(filter.getMinReleaseYear(), filter.getMaxReleaseYear())
+                || !isValidRange(filter.getMinPrice(), filter.getMaxPrice())) {
+            log.warn("Book filter is not valid: {}, page {}, size {}. ", filter, page, size);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST,
+                    "Page size should be from 1 to " + MAX_PAGE_SIZE + ", page should not be negative " +
+                            "and minimums should not be bigger then maximums");
+        }
+        if ((long) page * size > Integer.MAX_VALUE) {
+            log.warn("Book filter page {} of size {} is too deep. ", page, size);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST,
+                    "Page times page size should not be bigger then " + Integer.MAX_VALUE);
+        }
+        Pageable pageable = PageRequest.of(page, size, toSort(sort));
+        Slice<Book> result = bookRepository.findBookSlice(BookSpecifications.matching(filter), pageable);
+        List<Book> books = result.getContent();
+        log.info("Get filtered book page {} for {}. Size is : {}", page, filter, books.size());
+        return new BookSlice(books, size, result.hasNext(), null);
+    }
+
+    private static boolean isValidRange(Long min, Long max) {
+        return min == null || max == null || min <= max;
+    }
+
+    /**
+     * Parses {@code property[,asc|desc]}. Only the columns of the book can be sorted by.
+     */
+    private static Sort toSort(String sort) {
+        if (sort == null || sort.trim().isEmpty()) {
+            return Sort.by("id");
+        }
+        String[] parts = sort.split(",");
+        String property = parts[0].trim();
+        String direction = parts.length > 1 ? parts[1].trim() : "asc";
+        if (parts.length > 2 || !SORTABLE_PROPERTIES.contains(property)
+                || !("asc".equalsIgnoreCase(direction) || "desc".equalsIgnoreCase(direction))) {
+            log.warn("Book sort {} is not valid. ", sort);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST,
+                    "Sort should be one of " + SORTABLE_PROPERTIES + " optionally followed by ,asc or ,desc");
+        }
+        Sort order = Sort.by(Sort.Direction.fromString(direction), property);
+        return "id".equals(property) ? order : order.and(Sort.by("id"));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public void exportBooks(Consumer<Book> consumer) {
+        try (Stream<BookDAO> booksDAO = bookRepository.streamAllBy()) {
+            booksDAO.forEach(bookDAO -> {
+                consumer.accept(bookMapper.bookDAOToBook(bookDAO));
+                entityManager.detach(bookDAO);
+            });
+        }
+    }
+
+    /**
+     * Answered from the catalog snapshot once it is loaded, otherwise from the author cache.
+     */
     @Override
     public List<Book> findByAuthor(String author){
-        List<BookDAO> bookDAOList = bookRepository.findByAuthor(author);
-        if (bookDAOList.isEmpty()) {
+        List<Book> books = catalogSnapshotService.isLoaded()
+                ? catalogSnapshotService.findByAuthor(author)
+                : bookCatalogCache.booksByAuthor(author, () -> bookRepository.findByAuthor(author));
+        if (books.isEmpty()) {
             log.warn("Books list by author is not found. ");
             throw new BookControllerException(HttpStatus.NOT_FOUND, "Book list by this author is empty");
         }
-        return bookDAOList.stream().map(bookMapper::bookDAOToBook)
-                .collect(Collectors.toList());
+        return books;
+    }
+
+    @Override
+    public List<Book> searchBooks(String query, int limit) {
+        if (query == null || query.trim().isEmpty() || limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            log.warn("Search query '{}' or limit {} is not valid. ", query, limit);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST,
+                    "Query should not be blank and limit should be from 1 to " + MAX_SEARCH_LIMIT);
+        }
+        List<Book> books = bookSearchIndex.search(query, limit);
+        log.info("Search for '{}' found {} books", query, books.size());
+        return books;
     }
 
     @Override
@@ -58,8 +234,9 @@ public class BookServiceImpl implements BookService {
             log.warn("Book id is not null or negative number. Insert only positive numbers. ");
             throw new BookControllerException(HttpStatus.BAD_REQUEST, "Id should be bigger then null");
         }
-        Optional<Book> bookById = bookRepository.findById(id)
-                .flatMap(bookDAO -> Optional.ofNullable(bookMapper.bookDAOToBook(bookDAO)));
+        Optional<Book> bookById = catalogSnapshotService.isLoaded()
+                ? catalogSnapshotService.findById(id)
+                : bookCatalogCache.bookById(id, () -> bookRepository.findBookById(id));
         if (!bookById.isPresent()) {
             log.warn("Book with id {} is not found. ", id);
             throw new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found");
@@ -68,7 +245,10 @@ public class BookServiceImpl implements BookService {
         return bookById;
     }
 
-    @CacheEvict(cacheNames = "bookList", allEntries = true)
+    /**
+     * Runs in one transaction, so the catalog generation is increased together with the insert.
+     */
+    @Transactional
     @Override
     public Book saveBook(Book book) throws Exception {
         if (!hasNoMatch(book)) {
@@ -76,36 +256,187 @@ public class BookServiceImpl implements BookService {
             throw new BookControllerException(HttpStatus.CONFLICT, "Book with same isbn number already exists");
         }
         BookDAO bookDAO = bookMapper.bookToBookDAO(book);
-        BookDAO bookSaved = bookRepository.save(bookDAO);
+        // The id is generated and the version is seeded on insert, a new book never overwrites a stored one.
+        bookDAO.setId(null);
+        bookDAO.setVersion(null);
+        BookDAO bookSaved = saveUniqueIsbn(bookDAO);
         log.info("New book saved: {}", () -> bookSaved);
-        return bookMapper.bookDAOToBook(bookSaved);
+        Book savedBook = bookMapper.bookDAOToBook(bookSaved);
+        eventPublisher.publishEvent(BookChangedEvent.saved(savedBook));
+        return savedBook;
     }
 
-    @CacheEvict(cacheNames = "bookList", allEntries = true)
+    @Transactional
+    @Override
+    public List<BookBatchResult> saveBooks(List<Book> books) {
+        if (books == null || books.isEmpty() || books.size() > MAX_BATCH_SIZE) {
+            log.warn("Book batch is empty or bigger then {}. ", MAX_BATCH_SIZE);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST,
+                    "Batch should contain from 1 to " + MAX_BATCH_SIZE + " books");
+        }
+        BookBatchResult[] results = new BookBatchResult[books.size()];
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            String violations = book == null ? "Book is empty" : validator.validate(book).stream()
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.joining(", "));
+            if (!violations.isEmpty()) {
+                results[i] = new BookBatchResult(i, HttpStatus.BAD_REQUEST.value(), null, violations);
+            } else if (candidates.putIfAbsent(BookNormalizer.normalize(book.getIsbn()), i) != null) {
+                results[i] = new BookBatchResult(i, HttpStatus.CONFLICT.value(), null,
+                        "Book with same isbn number is repeated in the batch");
+            }
+        }
+        Set<String> existingIsbns = candidates.isEmpty() ? new HashSet<>()
+                : new HashSet<>(bookRepository.findExistingNormalizedIsbns(candidates.keySet()));
+        List<Integer> indexes = new ArrayList<>();
+        List<BookDAO> booksDAO = new ArrayList<>();
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            int index = candidate.getValue();
+            if (existingIsbns.contains(candidate.getKey())) {
+                results[index] = new BookBatchResult(index, HttpStatus.CONFLICT.value(), null,
+                        "Book with same isbn number already exists");
+            } else {
+                BookDAO bookDAO = bookMapper.bookToBookDAO(books.get(index));
+                // A null id makes Hibernate persist instead of merge, so no SELECT is issued per book.
+                bookDAO.setId(null);
+                bookDAO.setVersion(null);
+                indexes.add(index);
+                booksDAO.add(bookDAO);
+            }
+        }
+        List<BookDAO> booksSaved = saveAllUniqueIsbn(booksDAO);
+        for (int i = 0; i < booksSaved.size(); i++) {
+            int index = indexes.get(i);
+            Book savedBook = bookMapper.bookDAOToBook(booksSaved.get(i));
+            results[index] = new BookBatchResult(index, HttpStatus.CREATED.value(), savedBook, null);
+            eventPublisher.publishEvent(BookChangedEvent.saved(savedBook));
+        }
+        log.info("Book batch of size {} is processed, saved: {}", books.size(), booksSaved.size());
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Updates the book with a single UPDATE statement. When the book carries the version it was read with,
+     * the update only succeeds if the stored version is still the same, otherwise the response is 409.
+     * Without a version the update always wins, and the new version is read back by id.
+     */
+    @Transactional
     @Override
     public Book updateBook(Book book, Long id) throws Exception {
-        if (!book.getId().equals(id)) {
+        if (id <= 0) {
+            log.warn("Book id is not null or negative number. Insert only positive numbers. ");
+            throw new BookControllerException(HttpStatus.BAD_REQUEST, "Id should be bigger then null");
+        }
+        if (!id.equals(book.getId())) {
+            if (!bookRepository.existsById(id)) {
+                log.warn("Book with id {} is not found. ", id);
+                throw new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found");
+            }
             log.error("Book with this id is not possible to update ");
             throw new BookControllerException(HttpStatus.NOT_ACCEPTABLE, "Book is not possible to update");
         }
         BookDAO bookDAO = bookMapper.bookToBookDAO(book);
-        BookDAO bookSaved = bookRepository.save(bookDAO);
-        log.info("Book is updated: {}", () -> bookSaved);
-        return bookMapper.bookDAOToBook(bookSaved);
+        boolean versioned = bookDAO.getVersion() != null;
+        int updated = updateUniqueIsbn(bookDAO, versioned);
+        if (updated == 0 && (!versioned || !bookRepository.existsById(id))) {
+            log.warn("Book with id {} is not found. ", id);
+            throw new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found");
+        }
+        if (updated == 0) {
+            log.error("Book with id {} was changed by another request. Conflict exception. ", id);
+            throw new BookControllerException(HttpStatus.CONFLICT, "Book was changed by another request, read it again");
+        }
+        Book updatedBook = bookMapper.bookDAOToBook(bookDAO);
+        updatedBook.setVersion(versioned ? bookDAO.getVersion() + 1
+                : bookRepository.findVersionById(id).orElse(null));
+        log.info("Book is updated: {}", updatedBook);
+        eventPublisher.publishEvent(BookChangedEvent.updated(updatedBook));
+        return updatedBook;
     }
 
-    @CacheEvict(cacheNames = "bookList", allEntries = true)
+    @Transactional
     @Override
     public void deleteBookById(Long id) {
-        Optional<BookDAO> bookById = bookRepository.findById(id);
-        bookRepository.deleteById(bookById.get().getId());
+        if (bookRepository.deleteBookById(id) == 0) {
+            log.warn("Book with id {} is not found. ", id);
+            throw new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found");
+        }
         log.info("Book with id {} is deleted", id);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(id));
     }
 
     public boolean hasNoMatch(Book book) {
-        return bookRepository.findAll().stream()
-                .noneMatch(newBook ->
-                        newBook.getIsbn().equalsIgnoreCase(book.getIsbn())
-                );
+        return !bookRepository.existsByIsbnIgnoreCase(book.getIsbn());
     }
+
+    /**
+     * The existence check above is only a fast path: a concurrent writer can still insert
+     * the same isbn in between, so the unique index has the final word. The insert is flushed here,
+     * not at the commit, so its violation is caught.
+     */
+    private BookDAO saveUniqueIsbn(BookDAO bookDAO) {
+        try {
+            return bookRepository.saveAndFlush(bookDAO);
+        } catch (DataIntegrityViolationException e) {
+            throw integrityViolation(e, bookDAO);
+        }
+    }
+
+    private int updateUniqueIsbn(BookDAO bookDAO, boolean versioned) {
+        try {
+            return versioned ? bookRepository.updateBookIfVersion(bookDAO) : bookRepository.updateBook(bookDAO);
+        } catch (DataIntegrityViolationException e) {
+            throw integrityViolation(e, bookDAO);
+        }
+    }
+
+    private List<BookDAO> saveAllUniqueIsbn(List<BookDAO> booksDAO) {
+        if (booksDAO.isEmpty()) {
+            return booksDAO;
+        }
+        try {
+            return bookRepository.saveAllAndFlush(booksDAO);
+        } catch (DataIntegrityViolationException e) {
+            if (!isIsbnViolation(e)) {
+                log.error("Book batch violates a constraint of the book table. ", e);
+                throw new BookControllerException(HttpStatus.BAD_REQUEST, "Book batch is not valid, batch is not saved");
+            }
+            log.error("Book batch violates unique isbn constraint. Conflict exception. ");
+            throw new BookControllerException(HttpStatus.CONFLICT,
+                    "Book with same isbn number was saved concurrently, batch is not saved");
+        }
+    }
+
+    /**
+     * Only a violation of the isbn index is a conflict with another book. Any other violation,
+     * such as a number out of the column range, is a book the table can not hold.
+     */
+    private static BookControllerException integrityViolation(DataIntegrityViolationException e, BookDAO bookDAO) {
+        if (!isIsbnViolation(e)) {
+            log.error("Book with isbn {} violates a constraint of the book table. ", bookDAO.getIsbn(), e);
+            return new BookControllerException(HttpStatus.BAD_REQUEST, "Book is not valid");
+        }
+        log.error("Book with isbn {} violates unique constraint. Conflict exception. ", bookDAO.getIsbn());
+        return new BookControllerException(HttpStatus.CONFLICT, "Book with same isbn number already exists");
+    }
+
+    private static boolean isIsbnViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException
+                    && containsIsbnIndex(((ConstraintViolationException) cause).getConstraintName())) {
+                return true;
+            }
+            if (containsIsbnIndex(cause.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsIsbnIndex(String text) {
+        return text != null && text.toUpperCase(Locale.ROOT).contains(ISBN_INDEX);
+    }
+
 }
@@ -0,0 +1,156 @@
+package lv.alija.bookShop.business.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.catalog.CatalogSnapshotService;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import lv.alija.bookShop.business.event.StockFlushedEvent;
+import lv.alija.bookShop.business.inventory.InventoryCounters;
+import lv.alija.bookShop.business.mapper.BookMapper;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.business.service.InventoryService;
+import lv.alija.bookShop.exception.BookControllerException;
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.Reservation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+
+/**
+ * Inventory mode for flash sales: reservations only touch the {@link InventoryCounters},
+ * the book table follows within one flush interval. Enabled with {@code bookshop.inventory.mode=memory}.
+ * The caches, the snapshot and the search index follow the stock once per flush as well.
+ */
+@Log4j2
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bookshop.inventory.mode", havingValue = "memory")
+public class InMemoryInventoryServiceImpl implements InventoryService {
+
+    private final InventoryCounters inventoryCounters;
+
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    private final BookRepository bookRepository;
+
+    private final BookMapper bookMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public Book reserve(Long id, long quantity) {
+        validate(id, quantity);
+        OptionalLong left = inventoryCounters.take(id, quantity);
+        if (!left.isPresent()) {
+            throw notReserved(id, quantity);
+        }
+        log.info("Reserved {} books with id {}", quantity, id);
+        return withStock(id, left.getAsLong());
+    }
+
+    @Override
+    public Book release(Long id, long quantity) {
+        validate(id, quantity);
+        OptionalLong stock;
+        try {
+            stock = inventoryCounters.give(id, quantity);
+        } catch (ArithmeticException e) {
+            log.warn("Releasing {} books with id {} overflows the stock. ", quantity, id);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST, "Quantity is too big");
+        }
+        if (!stock.isPresent()) {
+            log.warn("Book with id {} is not found. ", id);
+            throw new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found");
+        }
+        log.info("Released {} books with id {}", quantity, id);
+        return withStock(id, stock.getAsLong());
+    }
+
+    /**
+     * Takes the books in id order and gives back the ones already taken if one of them is not available,
+     * so the cart is reserved completely or not at all.
+     */
+    @Override
+    public List<Book> reserveAll(List<Reservation> reservations) {
+        Map<Long, Long> quantities = InventoryServiceImpl.cartQuantities(reservations);
+        Map<Long, Long> left = new TreeMap<>();
+        for (Map.Entry<Long, Long> entry : quantities.entrySet()) {
+            OptionalLong stock = inventoryCounters.take(entry.getKey(), entry.getValue());
+            if (!stock.isPresent()) {
+                left.keySet().forEach(id -> inventoryCounters.give(id, quantities.get(id)));
+                throw notReserved(entry.getKey(), entry.getValue());
+            }
+            left.put(entry.getKey(), stock.getAsLong());
+        }
+        List<Book> books = new ArrayList<>();
+        left.forEach((id, stock) -> books.add(withStock(id, stock)));
+        log.info("Reserved cart of {} books", quantities.size());
+        return books;
+    }
+
+    private void validate(Long id, long quantity) {
+        if (id == null || id <= 0 || quantity <= 0) {
+            log.warn("Book id {} or quantity {} is not positive. ", id, quantity);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST, "Id and quantity should be bigger then null");
+        }
+    }
+
+    /**
+     * Publishes the flushed stock as one stock change of all the books, synchronously on the flushing thread,
+     * so the books read elsewhere never go back to an older stock and are rebuilt once per flush.
+     * The books get the version of the flush, which a following PUT has to carry.
+     */
+    @EventListener
+    public void onStockFlushed(StockFlushedEvent event) {
+        List<Book> books = new ArrayList<>();
+        event.getStocks().forEach((id, stock) -> {
+            Book book = findBook(id);
+            if (book != null) {
+                book.setQuantity(stock);
+                book.setVersion(event.getVersions().getOrDefault(id, book.getVersion()));
+                books.add(book);
+            }
+        });
+        if (!books.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(books));
+        }
+    }
+
+    private BookControllerException notReserved(Long id, long quantity) {
+        if (!inventoryCounters.contains(id)) {
+            log.warn("Book with id {} is not found. ", id);
+            return new BookControllerException(HttpStatus.NOT_FOUND, "Book with id " + id + " is not found");
+        }
+        log.warn("Not enough books with id {} in stock to reserve {}. ", id, quantity);
+        return new BookControllerException(HttpStatus.CONFLICT, "Not enough books with id " + id + " in stock");
+    }
+
+    /**
+     * The book with its stock from the counters.
+     */
+    private Book withStock(Long id, long quantity) {
+        Book book = findBook(id);
+        if (book == null) {
+            throw new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found");
+        }
+        book.setQuantity(quantity);
+        return book;
+    }
+
+    /**
+     * Cached books are shared, so a copy is returned to be changed.
+     */
+    private Book findBook(Long id) {
+        return catalogSnapshotService.isLoaded()
+                ? catalogSnapshotService.findById(id).map(bookMapper::copyBook).orElse(null)
+                : bookRepository.findById(id).map(bookMapper::bookDAOToBook).orElse(null);
+    }
+}
@@ -0,0 +1,149 @@
+package lv.alija.bookShop.business.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.mapper.BookMapper;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.business.service.InventoryService;
+import lv.alija.bookShop.exception.BookControllerException;
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.Reservation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Changes the stock with conditional UPDATE statements instead of read-modify-write,
+ * so concurrent checkouts never oversell and no row is locked longer than its own UPDATE.
+ * This is the default inventory mode, see {@link InMemoryInventoryServiceImpl} for the in-memory one.
+ */
+@Log4j2
+@Service
+@ConditionalOnProperty(name = "bookshop.inventory.mode", havingValue = "database", matchIfMissing = true)
+@RequiredArgsConstructor
+public class InventoryServiceImpl implements InventoryService {
+
+    public static final int MAX_CART_SIZE = 100;
+
+    private final BookRepository bookRepository;
+
+    private final BookMapper bookMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    @Override
+    public Book reserve(Long id, long quantity) {
+        validate(id, quantity);
+        if (bookRepository.reserveQuantity(id, quantity) == 0) {
+            throw notReserved(id, quantity);
+        }
+        log.info("Reserved {} books with id {}", quantity, id);
+        return reloaded(id);
+    }
+
+    @Transactional
+    @Override
+    public Book release(Long id, long quantity) {
+        validate(id, quantity);
+        if (bookRepository.releaseQuantity(id, quantity) == 0) {
+            throw notReleased(id, quantity);
+        }
+        log.info("Released {} books with id {}", quantity, id);
+        return reloaded(id);
+    }
+
+    /**
+     * Reserves the whole cart in one transaction: either every book is reserved or none.
+     * Rows are updated in id order, so two carts with the same books can not deadlock each other.
+     */
+    @Transactional
+    @Override
+    public List<Book> reserveAll(List<Reservation> reservations) {
+        Map<Long, Long> quantities = cartQuantities(reservations);
+        quantities.forEach((id, quantity) -> {
+            if (bookRepository.reserveQuantity(id, quantity) == 0) {
+                throw notReserved(id, quantity);
+            }
+        });
+        List<Book> books = bookRepository.findAllById(new ArrayList<>(quantities.keySet())).stream()
+                .map(bookMapper::bookDAOToBook)
+                .collect(Collectors.toList());
+        books.forEach(book -> eventPublisher.publishEvent(BookChangedEvent.stock(book)));
+        log.info("Reserved cart of {} books", quantities.size());
+        return books;
+    }
+
+    /**
+     * The quantities of a cart by book id, in id order. Lines of the same book are added up,
+     * and the total is validated like a single line.
+     */
+    static Map<Long, Long> cartQuantities(List<Reservation> reservations) {
+        if (reservations == null || reservations.isEmpty() || reservations.size() > MAX_CART_SIZE) {
+            log.warn("Cart is empty or bigger then {}. ", MAX_CART_SIZE);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST,
+                    "Cart should contain from 1 to " + MAX_CART_SIZE + " books");
+        }
+        Map<Long, Long> quantities = new TreeMap<>();
+        for (Reservation reservation : reservations) {
+            if (reservation == null) {
+                log.warn("Cart contains an empty reservation. ");
+                throw new BookControllerException(HttpStatus.BAD_REQUEST, "Cart should not contain empty reservations");
+            }
+            validate(reservation.getBookId(), reservation.getQuantity() == null ? 0 : reservation.getQuantity());
+            try {
+                quantities.merge(reservation.getBookId(), reservation.getQuantity(), Math::addExact);
+            } catch (ArithmeticException e) {
+                log.warn("Cart quantity of book with id {} is too big. ", reservation.getBookId());
+                throw new BookControllerException(HttpStatus.BAD_REQUEST,
+                        "Quantity of book with id " + reservation.getBookId() + " is too big");
+            }
+        }
+        quantities.forEach(InventoryServiceImpl::validate);
+        return quantities;
+    }
+
+    private static void validate(Long id, long quantity) {
+        if (id == null || id <= 0 || quantity <= 0) {
+            log.warn("Book id {} or quantity {} is not positive. ", id, quantity);
+            throw new BookControllerException(HttpStatus.BAD_REQUEST, "Id and quantity should be bigger then null");
+        }
+    }
+
+    private BookControllerException notReserved(Long id, long quantity) {
+        if (!bookRepository.existsById(id)) {
+            log.warn("Book with id {} is not found. ", id);
+            return new BookControllerException(HttpStatus.NOT_FOUND, "Book with id " + id + " is not found");
+        }
+        log.warn("Not enough books with id {} in stock to reserve {}. ", id, quantity);
+        return new BookControllerException(HttpStatus.CONFLICT, "Not enough books with id " + id + " in stock");
+    }
+
+    /**
+     * Answers like the in-memory counters: a missing book is 404, a stock that would overflow is 400.
+     */
+    private BookControllerException notReleased(Long id, long quantity) {
+        if (!bookRepository.existsById(id)) {
+            log.warn("Book with id {} is not found. ", id);
+            return new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found");
+        }
+        log.warn("Releasing {} books with id {} overflows the stock. ", quantity, id);
+        return new BookControllerException(HttpStatus.BAD_REQUEST, "Quantity is too big");
+    }
+
+    private Book reloaded(Long id) {
+        Book book = bookRepository.findById(id).map(bookMapper::bookDAOToBook)
+                .orElseThrow(() -> new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found"));
+        eventPublisher.publishEvent(BookChangedEvent.stock(book));
+        return book;
+    }
+}
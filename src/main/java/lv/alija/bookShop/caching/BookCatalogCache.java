@@ -0,0 +1,333 @@
+package lv.alija.bookShop.caching;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import lv.alija.bookShop.business.mapper.BookNormalizer;
+import lv.alija.bookShop.model.Book;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Write-through side of the book caches. Instead of evicting the cached lists on every write,
+ * the changed book is applied as a delta to the bookList, bookById and booksByAuthor entries,
+ * so readers keep hitting a warm cache under a steady write rate.
+ * Cached lists are shared with readers and are never modified in place, every delta builds a copy.
+ * Misses are loaded through {@link BookReadCoalescer}, and a loaded value is only cached when no delta
+ * was applied while it was read, so a load that started before a write can not overwrite that write.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BookCatalogCache {
+
+    private final CacheManager cacheManager;
+
+    private final BookReadCoalescer bookReadCoalescer;
+
+    private long modifications;
+
+    /**
+     * Counts applied deltas. A full reload that started before a delta must not overwrite it.
+     */
+    public synchronized long getModifications() {
+        return modifications;
+    }
+
+    /**
+     * Swaps the whole bookList entry, unless a book was changed since {@code expectedModifications} was read.
+     */
+    public synchronized boolean replaceBookList(List<Book> books, long expectedModifications) {
+        if (modifications != expectedModifications) {
+            return false;
+        }
+        Cache bookList = cacheManager.getCache(CacheNames.BOOK_LIST);
+        if (books.isEmpty()) {
+            bookList.evict(CacheNames.ALL_BOOKS_KEY);
+        } else {
+            bookList.put(CacheNames.ALL_BOOKS_KEY, new ArrayList<>(books));
+        }
+        return true;
+    }
+
+    public List<Book> bookList(Supplier<List<Book>> loader) {
+        Cache bookList = cacheManager.getCache(CacheNames.BOOK_LIST);
+        List<Book> cached = cachedList(bookList, CacheNames.ALL_BOOKS_KEY);
+        if (cached != null) {
+            return cached;
+        }
+        return bookReadCoalescer.bookList(() -> {
+            long expectedModifications = getModifications();
+            List<Book> books = loader.get();
+            if (!books.isEmpty()) {
+                putIfUnchanged(bookList, CacheNames.ALL_BOOKS_KEY, new ArrayList<>(books), expectedModifications);
+            }
+            return books;
+        });
+    }
+
+    public Optional<Book> bookById(Long id, Supplier<Optional<Book>> loader) {
+        Cache bookById = cacheManager.getCache(CacheNames.BOOK_BY_ID);
+        Book cached = bookById.get(id, Book.class);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return bookReadCoalescer.bookById(id, () -> {
+            long expectedModifications = getModifications();
+            Optional<Book> book = loader.get();
+            book.ifPresent(value -> putIfUnchanged(bookById, id, value, expectedModifications));
+            return book;
+        });
+    }
+
+    public List<Book> booksByAuthor(String author, Supplier<List<Book>> loader) {
+        Cache booksByAuthor = cacheManager.getCache(CacheNames.BOOKS_BY_AUTHOR);
+        String key = BookNormalizer.normalize(author);
+        List<Book> cached = cachedList(booksByAuthor, key);
+        if (cached != null) {
+            return cached;
+        }
+        return bookReadCoalescer.booksByAuthor(author, () -> {
+            long expectedModifications = getModifications();
+            List<Book> books = loader.get();
+            if (!books.isEmpty()) {
+                putIfUnchanged(booksByAuthor, key, new ArrayList<>(books), expectedModifications);
+            }
+            return books;
+        });
+    }
+
+    /**
+     * Runs when the event is published. Inside a transaction the change is only collected, and applied
+     * with the other changes of that transaction once it has committed, so a batch of saved books copies
+     * and stores every cached list once instead of once per book. Without a transaction it is applied right away.
+     */
+    @Order(BookChangedEvent.DATA_LISTENER_ORDER)
+    @EventListener
+    public void onBookChanged(BookChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(Collections.singletonList(event));
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.events.add(event);
+    }
+
+    /**
+     * The previous author of every changed book is looked up before any change is applied, a book saved
+     * in the same batch has none. The last change of a book wins.
+     */
+    private synchronized void apply(List<BookChangedEvent> events) {
+        modifications++;
+        Cache bookList = cacheManager.getCache(CacheNames.BOOK_LIST);
+        Cache bookById = cacheManager.getCache(CacheNames.BOOK_BY_ID);
+        Cache booksByAuthor = cacheManager.getCache(CacheNames.BOOKS_BY_AUTHOR);
+        Map<Long, Book> changes = new LinkedHashMap<>();
+        Map<String, Map<Long, Book>> authorChanges = new HashMap<>();
+        boolean authorsCleared = false;
+        for (BookChangedEvent event : events) {
+            if (!changes.containsKey(event.getId())) {
+                Book previous = findPrevious(event, bookList, bookById);
+                if (previous != null) {
+                    authorChanges.computeIfAbsent(BookNormalizer.normalize(previous.getAuthor()),
+                            author -> new LinkedHashMap<>()).put(event.getId(), null);
+                } else if (event.getType() != BookChangedEvent.Type.SAVED && !authorsCleared) {
+                    log.debug("Previous state of book {} is not cached, author lists are cleared", event.getId());
+                    booksByAuthor.clear();
+                    authorsCleared = true;
+                }
+            }
+            changes.put(event.getId(), event.getBook());
+        }
+
+        applyToList(bookList, CacheNames.ALL_BOOKS_KEY, changes);
+
+        changes.forEach((id, book) -> {
+            if (book != null) {
+                bookById.put(id, book);
+                authorChanges.computeIfAbsent(BookNormalizer.normalize(book.getAuthor()),
+                        author -> new LinkedHashMap<>()).put(id, book);
+            } else {
+                bookById.evict(id);
+            }
+        });
+        authorChanges.forEach((author, authorBooks) -> applyToList(booksByAuthor, author, authorBooks));
+        log.debug("Book caches are updated with {} changed books", changes.size());
+    }
+
+    /**
+     * A stock change keeps the order and the authors of the books, so every cached list is copied
+     * at most once for the whole batch.
+     */
+    @Order(BookChangedEvent.DATA_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStockChanged(StockChangedEvent event) {
+        modifications++;
+        Cache bookList = cacheManager.getCache(CacheNames.BOOK_LIST);
+        Cache bookById = cacheManager.getCache(CacheNames.BOOK_BY_ID);
+        Cache booksByAuthor = cacheManager.getCache(CacheNames.BOOKS_BY_AUTHOR);
+        Map<Long, Book> books = new HashMap<>();
+        Map<String, Map<Long, Book>> byAuthor = new HashMap<>();
+        for (Book book : event.getBooks()) {
+            books.put(book.getId(), book);
+            byAuthor.computeIfAbsent(BookNormalizer.normalize(book.getAuthor()), author -> new HashMap<>())
+                    .put(book.getId(), book);
+            bookById.put(book.getId(), book);
+        }
+        replaceInList(bookList, CacheNames.ALL_BOOKS_KEY, books);
+        byAuthor.forEach((author, authorBooks) -> replaceInList(booksByAuthor, author, authorBooks));
+        log.debug("Book caches are updated with the stock of {} books", books.size());
+    }
+
+    private synchronized void putIfUnchanged(Cache cache, Object key, Object value, long expectedModifications) {
+        if (modifications == expectedModifications) {
+            cache.put(key, value);
+        } else {
+            log.debug("Book changed while {} of {} was loaded, the loaded value is not cached", key, cache.getName());
+        }
+    }
+
+    private Book findPrevious(BookChangedEvent event, Cache bookList, Cache bookById) {
+        if (event.getType() == BookChangedEvent.Type.SAVED) {
+            return null;
+        }
+        Book previous = bookById.get(event.getId(), Book.class);
+        if (previous != null) {
+            return previous;
+        }
+        List<Book> books = cachedList(bookList, CacheNames.ALL_BOOKS_KEY);
+        if (books == null) {
+            return null;
+        }
+        int index = indexOf(books, event.getId());
+        return index >= 0 ? books.get(index) : null;
+    }
+
+    /**
+     * Replaces, inserts or removes the books with the given ids in a cached list in one copy of it,
+     * keeping it ordered by id. A null book is removed.
+     * Lists that are not cached are left alone, they are loaded on the next read.
+     * An emptied list is evicted, so the next read reports that nothing is found.
+     */
+    private void applyToList(Cache cache, Object key, Map<Long, Book> changes) {
+        List<Book> books = cachedList(cache, key);
+        if (books == null) {
+            return;
+        }
+        List<Book> updated = new ArrayList<>(books.size() + changes.size());
+        for (Book book : books) {
+            if (!changes.containsKey(book.getId())) {
+                updated.add(book);
+            }
+        }
+        boolean inserted = false;
+        for (Book book : changes.values()) {
+            if (book != null) {
+                updated.add(book);
+                inserted = true;
+            }
+        }
+        if (inserted) {
+            // the kept books are still in order, the sort only merges the few changed ones into them
+            updated.sort(Comparator.comparing(Book::getId));
+        }
+        if (updated.isEmpty()) {
+            cache.evict(key);
+        } else {
+            cache.put(key, updated);
+        }
+    }
+
+    /**
+     * Replaces the books of a cached list that are in {@code books}, in one copy of the list.
+     */
+    private void replaceInList(Cache cache, Object key, Map<Long, Book> books) {
+        List<Book> cached = cachedList(cache, key);
+        if (cached == null) {
+            return;
+        }
+        List<Book> updated = new ArrayList<>(cached);
+        boolean replaced = false;
+        for (int i = 0; i < updated.size(); i++) {
+            Book book = books.get(updated.get(i).getId());
+            if (book != null) {
+                updated.set(i, book);
+                replaced = true;
+            }
+        }
+        if (replaced) {
+            cache.put(key, updated);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Book> cachedList(Cache cache, Object key) {
+        Cache.ValueWrapper wrapper = cache.get(key);
+        return wrapper == null ? null : (List<Book>) wrapper.get();
+    }
+
+    /**
+     * The changes of the current transaction, in the order they were published.
+     */
+    private class PendingChanges implements TransactionSynchronization {
+
+        private final List<BookChangedEvent> events = new ArrayList<>();
+
+        @Override
+        public int getOrder() {
+            return BookChangedEvent.DATA_LISTENER_ORDER;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(BookCatalogCache.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(BookCatalogCache.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(BookCatalogCache.this);
+            if (status == STATUS_COMMITTED) {
+                apply(events);
+            }
+        }
+    }
+
+    private static int indexOf(List<Book> books, Long id) {
+        if (books instanceof SerializedBookList) {
+            return ((SerializedBookList) books).indexOfId(id);
+        }
+        for (int i = 0; i < books.size(); i++) {
+            if (id.equals(books.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,62 @@
+package lv.alija.bookShop.caching;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.model.Book;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Reloads the bookList cache entry in the background before its time to live runs out,
+ * so a request thread does not have to pay for the reload. The new list replaces the old one
+ * in a single put, readers see either the old or the new list.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BookListRefresher {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final BookRepository bookRepository;
+
+    private final BookCatalogCache bookCatalogCache;
+
+    @Getter
+    private volatile Instant lastRefreshTime;
+
+    @Getter
+    private volatile Duration lastRefreshDuration = Duration.ZERO;
+
+    @Getter
+    private volatile int lastRefreshSize;
+
+    @Scheduled(fixedDelayString = "${bookshop.cache.refresh-ahead-ms:240000}")
+    public void refresh() {
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+                long modifications = bookCatalogCache.getModifications();
+                List<Book> books = bookRepository.findAllBooks();
+                if (bookCatalogCache.replaceBookList(books, modifications)) {
+                    lastRefreshTime = Instant.now();
+                    lastRefreshDuration = Duration.ofNanos(System.nanoTime() - start);
+                    lastRefreshSize = books.size();
+                    log.info("Book list cache is refreshed. Size is : {}, took {} ms",
+                            books.size(), lastRefreshDuration.toMillis());
+                    return;
+                }
+                log.debug("Book list changed during refresh attempt {}, retrying", attempt);
+            }
+            log.warn("Book list cache is not refreshed, books are changing faster then the reload");
+        } catch (RuntimeException e) {
+            log.error("Book list cache refresh failed", e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package lv.alija.bookShop.caching;
+
+import lv.alija.bookShop.model.Book;
+import org.ehcache.spi.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Book lists for the off-heap tiers: the format byte, the number of books, the offset of every
+ * book from the start of the value and the books in the form of {@link BookSerializer}.
+ * A list is read back as a {@link SerializedBookList}, which only decodes the books that are asked for.
+ */
+public class BookListSerializer implements Serializer<List<Book>> {
+
+    /**
+     * Ehcache creates serializers through this constructor.
+     */
+    public BookListSerializer(ClassLoader classLoader) {
+    }
+
+    @Override
+    public ByteBuffer serialize(List<Book> books) {
+        byte[][] encoded = new byte[books.size()][];
+        int size = 1 + Integer.BYTES + books.size() * Integer.BYTES;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = BookSerializer.encode(books.get(i));
+            size += encoded[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(BookSerializer.FORMAT);
+        buffer.putInt(books.size());
+        int offsets = buffer.position();
+        buffer.position(offsets + books.size() * Integer.BYTES);
+        for (int i = 0; i < encoded.length; i++) {
+            buffer.putInt(offsets + i * Integer.BYTES, buffer.position());
+            buffer.put(encoded[i]);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Copies the bytes of the value, ehcache may reuse the buffer once the read returns.
+     */
+    @Override
+    public List<Book> read(ByteBuffer binary) {
+        byte[] bytes = new byte[binary.remaining()];
+        binary.get(bytes);
+        ByteBuffer value = ByteBuffer.wrap(bytes);
+        BookSerializer.checkFormat(value);
+        return new SerializedBookList(bytes, value.getInt());
+    }
+
+    @Override
+    public boolean equals(List<Book> books, ByteBuffer binary) {
+        return books.equals(read(binary));
+    }
+}
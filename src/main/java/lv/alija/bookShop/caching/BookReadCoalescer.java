@@ -0,0 +1,62 @@
+package lv.alija.bookShop.caching;
+
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import lv.alija.bookShop.business.mapper.BookNormalizer;
+import lv.alija.bookShop.model.Book;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Shares one database load between concurrent cache misses of the same book read, so an expired
+ * or evicted bookList entry is reloaded once instead of once per waiting request.
+ * A changed book detaches the running loads, later readers do not join a load that may miss the change.
+ */
+@Component
+public class BookReadCoalescer {
+
+    private final SingleFlight<String, List<Book>> bookList = new SingleFlight<>();
+
+    private final SingleFlight<Long, Optional<Book>> bookById = new SingleFlight<>();
+
+    private final SingleFlight<String, List<Book>> booksByAuthor = new SingleFlight<>();
+
+    public List<Book> bookList(Supplier<List<Book>> loader) {
+        return bookList.load(CacheNames.ALL_BOOKS_KEY, loader);
+    }
+
+    public Optional<Book> bookById(Long id, Supplier<Optional<Book>> loader) {
+        return bookById.load(id, loader);
+    }
+
+    public List<Book> booksByAuthor(String author, Supplier<List<Book>> loader) {
+        return booksByAuthor.load(BookNormalizer.normalize(author), loader);
+    }
+
+    public long getCoalesced() {
+        return bookList.getCoalesced() + bookById.getCoalesced() + booksByAuthor.getCoalesced();
+    }
+
+    @Order(BookChangedEvent.DATA_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        forgetAll();
+    }
+
+    @Order(BookChangedEvent.DATA_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        forgetAll();
+    }
+
+    private void forgetAll() {
+        bookList.forgetAll();
+        bookById.forgetAll();
+        booksByAuthor.forgetAll();
+    }
+}
@@ -0,0 +1,127 @@
+package lv.alija.bookShop.caching;
+
+import lv.alija.bookShop.model.Book;
+import org.ehcache.spi.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of a {@link Book} for the off-heap cache tiers, instead of Java serialization
+ * with its class descriptors. A book is a null flags byte, the five numbers as fixed width longs
+ * (id, releaseYear, quantity, price, version) and the four strings (title, author, genre, isbn)
+ * as an int length followed by UTF-8 bytes, -1 for null. A value starts with a format byte.
+ */
+public class BookSerializer implements Serializer<Book> {
+
+    static final byte FORMAT = 1;
+
+    private static final int NUMBERS_SIZE = 1 + 5 * Long.BYTES;
+
+    /**
+     * Ehcache creates serializers through this constructor.
+     */
+    public BookSerializer(ClassLoader classLoader) {
+    }
+
+    @Override
+    public ByteBuffer serialize(Book book) {
+        byte[] encoded = encode(book);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + encoded.length);
+        buffer.put(FORMAT);
+        buffer.put(encoded);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Override
+    public Book read(ByteBuffer binary) {
+        checkFormat(binary);
+        return readBook(binary);
+    }
+
+    @Override
+    public boolean equals(Book book, ByteBuffer binary) {
+        return book.equals(read(binary));
+    }
+
+    /**
+     * The book without the format byte. Every string is encoded once and its length taken from the bytes,
+     * so the size always matches what is written, also for text UTF-8 can not encode as it is, such as
+     * a lone surrogate, which the encoder replaces with '?'.
+     */
+    public static byte[] encode(Book book) {
+        byte[][] strings = {utf8(book.getTitle()), utf8(book.getAuthor()), utf8(book.getGenre()), utf8(book.getIsbn())};
+        int size = NUMBERS_SIZE;
+        for (byte[] string : strings) {
+            size += Integer.BYTES + (string == null ? 0 : string.length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        Long[] numbers = numbers(book);
+        byte nulls = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            if (numbers[i] == null) {
+                nulls |= 1 << i;
+            }
+        }
+        buffer.put(nulls);
+        for (Long number : numbers) {
+            buffer.putLong(number == null ? 0 : number);
+        }
+        for (byte[] string : strings) {
+            putString(buffer, string);
+        }
+        return buffer.array();
+    }
+
+    public static Book readBook(ByteBuffer buffer) {
+        byte nulls = buffer.get();
+        Long[] numbers = new Long[5];
+        for (int i = 0; i < numbers.length; i++) {
+            long number = buffer.getLong();
+            numbers[i] = (nulls & 1 << i) == 0 ? number : null;
+        }
+        return new Book(numbers[0], getString(buffer), getString(buffer), getString(buffer),
+                numbers[1], getString(buffer), numbers[2], numbers[3], numbers[4]);
+    }
+
+    static void checkFormat(ByteBuffer binary) {
+        byte format = binary.get();
+        if (format != FORMAT) {
+            throw new IllegalStateException("Unknown book format " + format);
+        }
+    }
+
+    private static Long[] numbers(Book book) {
+        return new Long[]{book.getId(), book.getReleaseYear(), book.getQuantity(), book.getPrice(), book.getVersion()};
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,16 +1,23 @@
 package lv.alija.bookShop.caching;
 
+import io.micrometer.core.instrument.Metrics;
 import org.ehcache.event.CacheEvent;
 import org.ehcache.event.CacheEventListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Created by ehcache, not by Spring, so the counters go to the global registry, which Spring Boot
+ * adds its registries to.
+ */
 public class CacheEventLogger implements CacheEventListener<Object, Object> {
 
     private final Logger LOG = LoggerFactory.getLogger(CacheEventLogger.class);
 
     @Override
     public void onEvent(CacheEvent<? extends Object, ? extends Object> cacheEvent) {
-        LOG.info("Old book list {}, new book list now is = {}", cacheEvent.getOldValue(),cacheEvent.getNewValue());
+        Metrics.counter("bookshop.cache.events", "cache", CacheNames.BOOK_LIST,
+                "type", cacheEvent.getType().name()).increment();
+        LOG.info("Book list cache event {} for key {}", cacheEvent.getType(), cacheEvent.getKey());
     }
 }
@@ -0,0 +1,14 @@
+package lv.alija.bookShop.caching;
+
+public class CacheNames {
+
+    public static final String BOOK_LIST = "bookList";
+    public static final String BOOK_BY_ID = "bookById";
+    public static final String BOOKS_BY_AUTHOR = "booksByAuthor";
+
+    /**
+     * Key of the single bookList entry, shared by the read and the write paths.
+     * The booksByAuthor entries are keyed by the normalized author, so "Author" and "author" share one entry.
+     */
+    public static final String ALL_BOOKS_KEY = "all";
+}
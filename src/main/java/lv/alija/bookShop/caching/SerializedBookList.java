@@ -0,0 +1,71 @@
+package lv.alija.bookShop.caching;
+
+import lv.alija.bookShop.model.Book;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only book list read from the off-heap tier, in the form written by {@link BookListSerializer}.
+ * A book is decoded the first time it is asked for and then kept, so a reader that needs a few books
+ * of a large list, or only the ids, does not pay for decoding all of them. Shared by concurrent readers
+ * like any other cached list.
+ */
+final class SerializedBookList extends AbstractList<Book> implements RandomAccess {
+
+    private static final int OFFSETS = 1 + Integer.BYTES;
+
+    private final ByteBuffer bytes;
+
+    private final int size;
+
+    private final AtomicReferenceArray<Book> decoded;
+
+    SerializedBookList(byte[] bytes, int size) {
+        this.bytes = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        this.size = size;
+        this.decoded = new AtomicReferenceArray<>(size);
+    }
+
+    @Override
+    public Book get(int index) {
+        Book book = decoded.get(index);
+        if (book == null) {
+            ByteBuffer buffer = bytes.duplicate();
+            buffer.position(offset(index));
+            book = BookSerializer.readBook(buffer);
+            if (!decoded.compareAndSet(index, null, book)) {
+                book = decoded.get(index);
+            }
+        }
+        return book;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Position of the book with the given id, read from the fixed width id fields without decoding any book.
+     */
+    int indexOfId(Long id) {
+        for (int i = 0; i < size; i++) {
+            int offset = offset(i);
+            // the null flags byte comes first, bit 0 marks a null id
+            if ((bytes.get(offset) & 1) == 0 && bytes.getLong(offset + 1) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return bytes.getInt(OFFSETS + index * Integer.BYTES);
+    }
+}
@@ -1,5 +1,6 @@
 package lv.alija.bookShop.exception;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -8,6 +9,7 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 @RestController
@@ -20,4 +22,12 @@ public class CustomizesExceptionHandler extends ResponseEntityExceptionHandler {
                 request.getDescription(false));
         return new ResponseEntity<>(exceptionResponse, ex.getErrorCode());
     }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public final ResponseEntity<Object> handleRejectedExecution(RejectedExecutionException ex, WebRequest request){
+        ExceptionResponse exceptionResponse = new ExceptionResponse(
+                "Server is busy, repeat the request later", new Date(),
+                request.getDescription(false));
+        return new ResponseEntity<>(exceptionResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
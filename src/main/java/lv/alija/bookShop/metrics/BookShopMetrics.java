@@ -0,0 +1,45 @@
+package lv.alija.bookShop.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lv.alija.bookShop.business.catalog.CatalogSnapshotService;
+import lv.alija.bookShop.caching.BookListRefresher;
+import lv.alija.bookShop.caching.BookReadCoalescer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges of the in-memory catalog: the background bookList refresh and the catalog snapshot,
+ * and the count of reads that shared another read's load.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookShopMetrics implements MeterBinder {
+
+    private final BookListRefresher bookListRefresher;
+
+    private final CatalogSnapshotService catalogSnapshotService;
+
+    private final BookReadCoalescer bookReadCoalescer;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bookshop.cache.refresh.duration", bookListRefresher,
+                        refresher -> refresher.getLastRefreshDuration().toMillis())
+                .description("Duration of the last bookList refresh")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("bookshop.cache.refresh.size", bookListRefresher, BookListRefresher::getLastRefreshSize)
+                .description("Number of books loaded by the last bookList refresh")
+                .register(registry);
+        Gauge.builder("bookshop.catalog.snapshot.size", catalogSnapshotService,
+                        service -> service.getSnapshot().size())
+                .description("Number of books in the catalog snapshot")
+                .register(registry);
+        FunctionCounter.builder("bookshop.read.coalesced", bookReadCoalescer, BookReadCoalescer::getCoalesced)
+                .description("Reads answered by a load another request had already started")
+                .register(registry);
+    }
+}
@@ -2,6 +2,7 @@ package lv.alija.bookShop.model;
 
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -13,6 +14,7 @@ import java.io.Serializable;
 @ApiModel(description = "Model of book data")
 @Data
 @NoArgsConstructor
+@AllArgsConstructor
 public class Book implements Serializable {
 
     @ApiModelProperty(notes = "The unique id of the book should be more then 0")
@@ -51,4 +53,8 @@ public class Book implements Serializable {
     @Min(value = 0)
     private Long price;
 
+    @ApiModelProperty(notes = "Version of the book. Pass the version you have read to update the book " +
+            "only if nobody has changed it since")
+    private Long version;
+
 }
@@ -0,0 +1,29 @@
+package lv.alija.bookShop.model;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@ApiModel(description = "Result of saving one book of a batch")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchResult implements Serializable {
+
+    @ApiModelProperty(notes = "Position of the book in the request")
+    private int index;
+
+    @ApiModelProperty(notes = "HTTP status code for this book: 201, 400 or 409")
+    private int status;
+
+    @ApiModelProperty(notes = "Saved book, empty when the book is rejected")
+    private Book book;
+
+    @ApiModelProperty(notes = "Reason why the book is rejected")
+    private String message;
+
+}
@@ -0,0 +1,38 @@
+package lv.alija.bookShop.model;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@ApiModel(description = "Criteria to filter the book catalog, empty criteria are ignored")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFilter implements Serializable {
+
+    @ApiModelProperty(notes = "Genre of the book, case-insensitive")
+    private String genre;
+
+    @ApiModelProperty(notes = "Author of the book, case-insensitive")
+    private String author;
+
+    @ApiModelProperty(notes = "Books released in this year or later")
+    private Long minReleaseYear;
+
+    @ApiModelProperty(notes = "Books released in this year or earlier")
+    private Long maxReleaseYear;
+
+    @ApiModelProperty(notes = "Books with this price or more")
+    private Long minPrice;
+
+    @ApiModelProperty(notes = "Books with this price or less")
+    private Long maxPrice;
+
+    @ApiModelProperty(notes = "True for books that are in stock only")
+    private Boolean inStock;
+
+}
@@ -0,0 +1,30 @@
+package lv.alija.bookShop.model;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+@ApiModel(description = "One page of the book catalog")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSlice implements Serializable {
+
+    @ApiModelProperty(notes = "Books of this page, ordered by id unless another sort is requested")
+    private List<Book> content;
+
+    @ApiModelProperty(notes = "Requested page size")
+    private int size;
+
+    @ApiModelProperty(notes = "True if there are more books after this page")
+    private boolean hasNext;
+
+    @ApiModelProperty(notes = "Cursor for the next page, pass it as afterId. Empty on the last page")
+    private Long next;
+
+}
@@ -0,0 +1,29 @@
+package lv.alija.bookShop.model;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+
+@ApiModel(description = "Quantity of one book to reserve or release")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Reservation implements Serializable {
+
+    @ApiModelProperty(notes = "The id of the book")
+    @NotNull
+    @Min(value = 1)
+    private Long bookId;
+
+    @ApiModelProperty(notes = "Number of books, should be more then 0")
+    @NotNull
+    @Min(value = 1)
+    private Long quantity;
+
+}
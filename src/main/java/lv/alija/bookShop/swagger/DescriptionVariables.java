@@ -3,4 +3,5 @@ package lv.alija.bookShop.swagger;
 public class DescriptionVariables {
 
     public static final String BOOK = "Book Controller";
+    public static final String INVENTORY = "Inventory Controller";
 }
@@ -21,6 +21,8 @@ public class HTMLResponseMessages {
             "with already existent data";
     public static final String HTTP_500 = "Unsuccessful request responds with this code. Internal server error. " +
             "Check the response headers for information";
+    public static final String HTTP_503 = "Unsuccessful request responds with this code. Server is busy, " +
+            "repeat the request later";
 
 
 }
@@ -0,0 +1,151 @@
+package lv.alija.bookShop.web.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the asynchronous read endpoints off the servlet threads. At most max-threads reads run at once
+ * and at most queue-capacity wait, everything above is rejected and answered with 503 instead of
+ * piling up behind the database pool. With virtual-threads every read gets its own virtual thread
+ * (Java 21 and newer), the same limits are then kept with two semaphores: one admits max-threads plus
+ * queue-capacity reads, the other lets max-threads of them run while the rest wait in arrival order.
+ */
+@Log4j2
+@Component
+public class ReadExecutor implements Executor, DisposableBean {
+
+    public static final String METRIC_NAME = "bookshop.read.executor";
+
+    private final ExecutorService delegate;
+
+    private final ExecutorService monitored;
+
+    private final Semaphore admitted;
+
+    private final Semaphore running;
+
+    private final Counter rejected;
+
+    @Getter
+    private final boolean virtual;
+
+    @Autowired
+    public ReadExecutor(@Value("${bookshop.async.max-threads:16}") int maxThreads,
+                        @Value("${bookshop.async.queue-capacity:200}") int queueCapacity,
+                        @Value("${bookshop.async.virtual-threads:false}") boolean virtualThreads,
+                        ObjectProvider<MeterRegistry> meterRegistry) {
+        this(maxThreads, queueCapacity, virtualThreads ? newVirtualThreadPerTaskExecutor() : null,
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    /**
+     * Runs the reads on {@code threadPerTask}, which starts a thread for every task, or on a platform thread pool
+     * when it is null.
+     */
+    ReadExecutor(int maxThreads, int queueCapacity, ExecutorService threadPerTask, MeterRegistry registry) {
+        this.virtual = threadPerTask != null;
+        if (virtual) {
+            this.delegate = threadPerTask;
+            this.admitted = new Semaphore(maxThreads + queueCapacity);
+            this.running = new Semaphore(maxThreads, true);
+        } else {
+            this.delegate = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new ReadThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+            this.admitted = null;
+            this.running = null;
+        }
+        this.monitored = ExecutorServiceMetrics.monitor(registry, delegate, METRIC_NAME,
+                Tags.of("type", virtual ? "virtual" : "platform"));
+        this.rejected = Counter.builder(METRIC_NAME + ".rejected")
+                .description("Reads rejected because the read executor is full")
+                .register(registry);
+        log.info("Asynchronous reads run on {} threads, limit {} running and {} waiting",
+                virtual ? "virtual" : "platform", maxThreads, queueCapacity);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        try {
+            if (admitted == null) {
+                monitored.execute(task);
+                return;
+            }
+            if (!admitted.tryAcquire()) {
+                throw new RejectedExecutionException("Read executor is full");
+            }
+            try {
+                monitored.execute(() -> {
+                    // a waiting virtual thread is the queue, parking it costs no platform thread
+                    running.acquireUninterruptibly();
+                    try {
+                        task.run();
+                    } finally {
+                        running.release();
+                        admitted.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                admitted.release();
+                throw e;
+            }
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        delegate.shutdown();
+        if (!delegate.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Read executor did not finish in 10 seconds, interrupting");
+            delegate.shutdownNow();
+        }
+    }
+
+    /**
+     * Looked up by reflection, the project is compiled for Java 17 where virtual threads do not exist yet.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            log.warn("Virtual threads are not available on Java {}, using the platform thread pool",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    private static class ReadThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "book-read-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package lv.alija.bookShop.web.cache;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * UTF-8 JSON body of a response together with its strong ETag.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class CachedResponse {
+
+    private final byte[] body;
+
+    private final String etag;
+
+    public static CachedResponse of(byte[] body, String tag) {
+        return new CachedResponse(body, "\"" + tag + '"');
+    }
+}
@@ -0,0 +1,235 @@
+package lv.alija.bookShop.web.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.catalog.CatalogVersion;
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import lv.alija.bookShop.business.mapper.BookNormalizer;
+import lv.alija.bookShop.model.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the already encoded JSON of the hot read endpoints, so a hit writes the cached bytes
+ * to the response without serializing the books again. Entries are dropped on the same writes
+ * that change the books: the list, the changed book and the author lists it belongs to.
+ * The JSON is encoded from the book caches and the catalog snapshot, so it is invalidated after
+ * their listeners have applied the change. Every entry expires ttl-ms after it was encoded.
+ * <p>
+ * The book list is tagged with the catalog version, a single book and an author list with the versions
+ * and stock of their own books, so their ETags stay valid across changes of other books.
+ * <p>
+ * A hit takes no lock: the entries are kept in a concurrent map and a hit only stamps the entry
+ * with the time it was read. Above max-entries the least recently read entries are dropped
+ * together with a tenth of max-entries more, so the sort of the entries is paid once per many misses.
+ */
+@Log4j2
+@Component
+public class JsonResponseCache {
+
+    private static final String BOOK_LIST_KEY = "list";
+    private static final String AUTHOR_KEY_PREFIX = "author:";
+    private static final String ID_KEY_PREFIX = "id:";
+
+    private final ObjectMapper objectMapper;
+
+    private final CatalogVersion catalogVersion;
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Object evictionLock = new Object();
+
+    public JsonResponseCache(ObjectMapper objectMapper, CatalogVersion catalogVersion,
+                             @Value("${bookshop.json-cache.max-entries:10000}") int maxEntries,
+                             @Value("${bookshop.json-cache.ttl-ms:300000}") long ttlMillis) {
+        this.objectMapper = objectMapper;
+        this.catalogVersion = catalogVersion;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public CachedResponse bookList(Supplier<? extends List<Book>> loader) {
+        return get(BOOK_LIST_KEY, loader, (books, version) -> Long.toString(version));
+    }
+
+    public CachedResponse booksByAuthor(String author, Supplier<? extends List<Book>> loader) {
+        return get(AUTHOR_KEY_PREFIX + BookNormalizer.normalize(author), loader, (books, version) -> booksTag(books));
+    }
+
+    public CachedResponse bookById(Long id, Supplier<Optional<Book>> loader) {
+        return get(ID_KEY_PREFIX + id, loader, (book, version) -> book.map(this::bookTag).orElse(id + "-none"));
+    }
+
+    /**
+     * Returns the cached response or serializes the loaded value, tagged by the given function from the
+     * value and the catalog version read before the load. Exceptions of the loader are passed on and
+     * nothing is cached. A value loaded while a book changed is returned but not cached, because it may
+     * already be stale. The version is read again after the entry is stored: a change that came in
+     * between has either increased the version before that read or drops the entry after it.
+     */
+    private <T> CachedResponse get(String key, Supplier<? extends T> loader, BiFunction<T, Long, String> tag) {
+        Entry cached = entries.get(key);
+        if (cached != null && System.currentTimeMillis() < cached.expiresAt) {
+            cached.lastRead = System.nanoTime();
+            return cached.response;
+        }
+        long version = catalogVersion.getVersion();
+        T value = loader.get();
+        CachedResponse response = CachedResponse.of(serialize(value), tag.apply(value, version));
+        if (catalogVersion.getVersion() == version) {
+            Entry entry = new Entry(response, System.currentTimeMillis() + ttlMillis);
+            entries.put(key, entry);
+            if (catalogVersion.getVersion() != version) {
+                entries.remove(key, entry);
+            } else if (entries.size() > maxEntries) {
+                evict();
+            }
+        }
+        return response;
+    }
+
+    @Order(BookChangedEvent.DERIVED_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        entries.remove(BOOK_LIST_KEY);
+        entries.remove(ID_KEY_PREFIX + event.getId());
+        if (event.getType() == BookChangedEvent.Type.SAVED || event.getType() == BookChangedEvent.Type.STOCK) {
+            // a new book or a stock change only touches the list of its own author
+            entries.remove(AUTHOR_KEY_PREFIX + BookNormalizer.normalize(event.getBook().getAuthor()));
+        } else {
+            // The previous author of an updated or deleted book is unknown, author lists are few.
+            entries.keySet().removeIf(key -> key.startsWith(AUTHOR_KEY_PREFIX));
+        }
+        log.debug("Cached JSON responses are invalidated: {}", event);
+    }
+
+    /**
+     * A stock change only touches the lists of the authors of the changed books.
+     */
+    @Order(BookChangedEvent.DERIVED_LISTENER_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        entries.remove(BOOK_LIST_KEY);
+        for (Book book : event.getBooks()) {
+            entries.remove(ID_KEY_PREFIX + book.getId());
+            entries.remove(AUTHOR_KEY_PREFIX + BookNormalizer.normalize(book.getAuthor()));
+        }
+        log.debug("Cached JSON responses are invalidated for the stock of {} books", event.getBooks().size());
+    }
+
+    public void clear() {
+        catalogVersion.increment();
+        entries.clear();
+    }
+
+    /**
+     * Drops the least recently read entries. Misses that find the cache full wait for one eviction
+     * instead of sorting the entries again.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            int excess = entries.size() - maxEntries;
+            if (excess <= 0) {
+                return;
+            }
+            // the read times are copied first, hits keep changing them while the entries are sorted
+            List<ReadEntry> leastRecentlyRead = new ArrayList<>(entries.size());
+            entries.forEach((key, entry) -> leastRecentlyRead.add(new ReadEntry(key, entry, entry.lastRead)));
+            leastRecentlyRead.sort(Comparator.comparingLong(ReadEntry::getLastRead));
+            int evicted = Math.min(excess + maxEntries / 10, leastRecentlyRead.size());
+            for (ReadEntry readEntry : leastRecentlyRead.subList(0, evicted)) {
+                entries.remove(readEntry.getKey(), readEntry.getEntry());
+            }
+            log.debug("{} least recently read JSON responses are dropped", evicted);
+        }
+    }
+
+    /**
+     * The quantity is part of the tag: the in-memory inventory changes the stock without a new version.
+     */
+    private String bookTag(Book book) {
+        return catalogVersion.getStartVersion() + "-" + book.getId() + "-" + book.getVersion() + "-" + book.getQuantity();
+    }
+
+    /**
+     * Hash of the ids, versions and stock of the books in their order, so adding, removing or changing
+     * any of them changes the tag.
+     */
+    private String booksTag(List<Book> books) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(3 * Long.BYTES);
+            for (Book book : books) {
+                buffer.clear();
+                buffer.putLong(book.getId())
+                        .putLong(book.getVersion() == null ? -1 : book.getVersion())
+                        .putLong(book.getQuantity() == null ? -1 : book.getQuantity());
+                digest.update(buffer.array());
+            }
+            byte[] hash = digest.digest();
+            return catalogVersion.getStartVersion() + "-" + books.size() + "-"
+                    + Long.toHexString(ByteBuffer.wrap(hash).getLong()) + Long.toHexString(ByteBuffer.wrap(hash, 8, 8).getLong());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Entry {
+
+        private final CachedResponse response;
+
+        private final long expiresAt;
+
+        /**
+         * Written by every hit without a lock, a read that is lost to a concurrent one only makes the order approximate.
+         */
+        private volatile long lastRead = System.nanoTime();
+
+        private Entry(CachedResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class ReadEntry {
+
+        private final String key;
+
+        private final Entry entry;
+
+        private final long lastRead;
+    }
+}
@@ -0,0 +1,103 @@
+package lv.alija.bookShop.web.controller;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.swagger.DescriptionVariables;
+import lv.alija.bookShop.swagger.HTMLResponseMessages;
+import lv.alija.bookShop.web.async.ReadExecutor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.constraints.Min;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variants of the read endpoints. The servlet thread is released as soon as the read
+ * is handed to the {@link ReadExecutor}. The answer is built by the same {@link BookReadResponses} as the one
+ * of {@link BookController}, including the ETag and 304 handling. When the executor is full the request is answered with 503.
+ */
+@Api(tags = {DescriptionVariables.BOOK})
+@Log4j2
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/book/async")
+public class AsyncBookController {
+
+    private final BookReadResponses bookReadResponses;
+
+    private final ReadExecutor readExecutor;
+
+    @GetMapping("/list")
+    @ApiOperation(value = "Find list of all books asynchronously",
+            notes = "Returns the entire list of books",
+            response = Book.class, responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = Book.class, responseContainer = "List"),
+            @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500),
+            @ApiResponse(code = 503, message = HTMLResponseMessages.HTTP_503)})
+    public CompletableFuture<ResponseEntity<byte[]>> findAllBooks() {
+        log.info("Retrieve list of the books asynchronously.");
+        return CompletableFuture.supplyAsync(bookReadResponses::findAllBooks, readExecutor);
+    }
+
+    @GetMapping("/list/{author}")
+    @ApiOperation(value = "Find list of books by author asynchronously",
+            notes = "Returns the entire list of books by author",
+            response = Book.class, responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = Book.class, responseContainer = "List"),
+            @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500),
+            @ApiResponse(code = 503, message = HTMLResponseMessages.HTTP_503)})
+    public CompletableFuture<ResponseEntity<byte[]>> findAllByAuthor(@NonNull @PathVariable("author") String author) {
+        log.info("Retrieve list of the books by author {} asynchronously.", author);
+        return CompletableFuture.supplyAsync(() -> bookReadResponses.findAllByAuthor(author), readExecutor);
+    }
+
+    @GetMapping("/search")
+    @ApiOperation(value = "Search books by title, author and genre asynchronously",
+            notes = "Every word of the query should start a word of the title, author or genre. " +
+                    "Best matches come first",
+            response = Book.class, responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = Book.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500),
+            @ApiResponse(code = 503, message = HTMLResponseMessages.HTTP_503)})
+    public CompletableFuture<ResponseEntity<List<Book>>> searchBooks(@ApiParam(value = "words or beginnings of words to search", required = true)
+                                                                     @RequestParam("q") String query,
+                                                                     @ApiParam(value = "maximum number of books to return")
+                                                                     @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        log.info("Search books by query '{}', limit {} asynchronously.", query, limit);
+        return CompletableFuture.supplyAsync(() -> bookReadResponses.searchBooks(query, limit), readExecutor);
+    }
+
+    @GetMapping("/{id}")
+    @ApiOperation(value = "Find the book by id asynchronously",
+            notes = "Provide an id to search specific book in database",
+            response = Book.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500),
+            @ApiResponse(code = 503, message = HTMLResponseMessages.HTTP_503)})
+    public CompletableFuture<ResponseEntity<byte[]>> findBookById(@ApiParam(value = "id of the book", required = true)
+                                                                  @NonNull @PathVariable("id") @Min(value = 1) Long id) {
+        log.info("Retrieve book by book id {} asynchronously.", id);
+        return CompletableFuture.supplyAsync(() -> bookReadResponses.findBookById(id), readExecutor);
+    }
+}
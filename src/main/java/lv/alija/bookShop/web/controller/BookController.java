@@ -10,8 +10,14 @@ import lombok.extern.log4j.Log4j2;
 import lv.alija.bookShop.business.service.BookService;
 import lv.alija.bookShop.exception.BookControllerException;
 import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.BookBatchResult;
+import lv.alija.bookShop.model.BookFilter;
+import lv.alija.bookShop.model.BookSlice;
 import lv.alija.bookShop.swagger.DescriptionVariables;
 import lv.alija.bookShop.swagger.HTMLResponseMessages;
+import lv.alija.bookShop.web.export.BookExportWriter;
+import lv.alija.bookShop.web.export.ExportFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
@@ -23,14 +29,17 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 
 @Api(tags = {DescriptionVariables.BOOK})
@@ -40,8 +49,17 @@ import java.util.Optional;
 @RequestMapping("/book")
 public class BookController {
 
+    /**
+     * Page size of /list when a cursor or a page is passed without a size, the same as the default of /filter.
+     */
+    static final int DEFAULT_PAGE_SIZE = 20;
+
     private final BookService bookService;
 
+    private final BookExportWriter bookExportWriter;
+
+    private final BookReadResponses bookReadResponses;
+
     @GetMapping("/list")
     @ApiOperation(value = "Find list of all books",
             notes = "Returns the entire list of books",
@@ -50,13 +68,116 @@ public class BookController {
             @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = Book.class, responseContainer = "List"),
             @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
             @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
-    public ResponseEntity<List<Book>> findAllBooks() {
+    public ResponseEntity<byte[]> findAllBooks() {
         log.info("Retrieve list of the books.");
-        List<Book> books = bookService.findAllBooks();
-        log.debug("Book list is found.Size: {}", books::size);
+        return bookReadResponses.findAllBooks();
+    }
+
+    @GetMapping(value = "/list", params = {"fields", "!size"})
+    @ApiOperation(value = "Find list of all books with the given fields only",
+            notes = "Returns the entire list of books, each with only the requested fields, for example fields=id,title,price")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<List<Map<String, Object>>> findBookFields(@ApiParam(value = "comma separated book fields", required = true)
+                                                                    @RequestParam("fields") List<String> fields) {
+        log.info("Retrieve list of the books with fields {}.", fields);
+        List<Map<String, Object>> books = bookService.findBookFields(fields);
+        log.debug("Book list with fields is found.Size: {}", books.size());
         return ResponseEntity.ok(books);
     }
 
+    @GetMapping(value = "/list", params = "size")
+    @ApiOperation(value = "Find one page of books",
+            notes = "Returns books ordered by id. Pass the returned next cursor as afterId to scroll the catalog",
+            response = BookSlice.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = BookSlice.class),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<BookSlice> findBookSlice(@ApiParam(value = "id of the last book of the previous page")
+                                                   @RequestParam(value = "afterId", required = false) Long afterId,
+                                                   @ApiParam(value = "page number, ignored when afterId is passed")
+                                                   @RequestParam(value = "page", defaultValue = "0") int page,
+                                                   @ApiParam(value = "page size", required = true)
+                                                   @RequestParam("size") int size) {
+        log.info("Retrieve page of the books after id {}, page {}, size {}.", afterId, page, size);
+        BookSlice slice = bookService.findBookSlice(afterId, page, size);
+        log.debug("Book page is found.Size: {}", () -> slice.getContent().size());
+        return ResponseEntity.ok(slice);
+    }
+
+    @GetMapping(value = "/list", params = {"afterId", "!size", "!fields"})
+    @ApiOperation(value = "Find the page of books after a cursor",
+            notes = "Same as the page of books with the default page size of " + DEFAULT_PAGE_SIZE,
+            response = BookSlice.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = BookSlice.class),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<BookSlice> findBookSliceAfter(@ApiParam(value = "id of the last book of the previous page", required = true)
+                                                        @RequestParam("afterId") Long afterId) {
+        return findBookSlice(afterId, 0, DEFAULT_PAGE_SIZE);
+    }
+
+    @GetMapping(value = "/list", params = {"page", "!afterId", "!size", "!fields"})
+    @ApiOperation(value = "Find one page of books with the default page size",
+            notes = "Same as the page of books with the default page size of " + DEFAULT_PAGE_SIZE,
+            response = BookSlice.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = BookSlice.class),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<BookSlice> findBookPage(@ApiParam(value = "page number", required = true)
+                                                  @RequestParam("page") int page) {
+        return findBookSlice(null, page, DEFAULT_PAGE_SIZE);
+    }
+
+    @GetMapping("/filter")
+    @ApiOperation(value = "Find one page of books matching the criteria",
+            notes = "Filters by genre, author, release year and price ranges and stock in the database. " +
+                    "Sort by a book property, optionally followed by ,asc or ,desc",
+            response = BookSlice.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = BookSlice.class),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<BookSlice> filterBooks(BookFilter filter,
+                                                 @ApiParam(value = "property to sort by, for example price,desc")
+                                                 @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                 @ApiParam(value = "page number")
+                                                 @RequestParam(value = "page", defaultValue = "0") int page,
+                                                 @ApiParam(value = "page size")
+                                                 @RequestParam(value = "size", defaultValue = "20") int size) {
+        log.info("Filter books by {}, sort {}, page {}, size {}.", filter, sort, page, size);
+        BookSlice slice = bookService.filterBooks(filter, sort, page, size);
+        log.debug("Filtered book page is found.Size: {}", () -> slice.getContent().size());
+        return ResponseEntity.ok(slice);
+    }
+
+    @GetMapping("/export")
+    @ApiOperation(value = "Export the entire catalog",
+            notes = "Streams all books ordered by id as newline delimited JSON or CSV")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public WebAsyncTask<Void> exportBooks(@ApiParam(value = "ndjson or csv")
+                                          @RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                          HttpServletResponse response) {
+        ExportFormat exportFormat = ExportFormat.fromValue(format);
+        log.info("Export the books in format {}.", exportFormat);
+        response.setContentType(exportFormat.getMediaType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=books." + exportFormat.getExtension());
+        // the export gets its own timeout, the other asynchronous requests keep the default one
+        return new WebAsyncTask<>(bookExportWriter.getTimeoutMillis(), () -> {
+            bookExportWriter.write(exportFormat, response.getOutputStream());
+            return null;
+        });
+    }
+
     @GetMapping("/list/{author}")
     @ApiOperation(value = "Find list of books by author",
             notes = "Returns the entire list of books by author",
@@ -65,11 +186,26 @@ public class BookController {
             @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = Book.class, responseContainer = "List"),
             @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
             @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
-    public ResponseEntity<List<Book>> findAllByAuthor(@NonNull @PathVariable("author") String author) {
+    public ResponseEntity<byte[]> findAllByAuthor(@NonNull @PathVariable("author") String author) {
         log.info("Retrieve list of the books by author {}.", author);
-        List<Book> books = bookService.findByAuthor(author);
-        log.debug("Book list by author is found.Size: {}", books::size);
-        return ResponseEntity.ok(books);
+        return bookReadResponses.findAllByAuthor(author);
+    }
+
+    @GetMapping("/search")
+    @ApiOperation(value = "Search books by title, author and genre",
+            notes = "Every word of the query should start a word of the title, author or genre. " +
+                    "Best matches come first",
+            response = Book.class, responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = Book.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<List<Book>> searchBooks(@ApiParam(value = "words or beginnings of words to search", required = true)
+                                                  @RequestParam("q") String query,
+                                                  @ApiParam(value = "maximum number of books to return")
+                                                  @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        log.info("Search books by query '{}', limit {}.", query, limit);
+        return bookReadResponses.searchBooks(query, limit);
     }
 
     @GetMapping("/{id}")
@@ -81,12 +217,10 @@ public class BookController {
             @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
             @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
             @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
-    public ResponseEntity<Optional<Book>> findBookById(@ApiParam(value = "id of the book", required = true)
-                                             @NonNull @PathVariable("id") @Min(value=1) Long id) {
+    public ResponseEntity<byte[]> findBookById(@ApiParam(value = "id of the book", required = true)
+                                               @NonNull @PathVariable("id") @Min(value=1) Long id) {
         log.info("Retrieve book by book id {}.", id);
-        Optional<Book> book = bookService.findBookById(id);
-        log.debug("Book with id {} is found: {}", id, book);
-        return ResponseEntity.ok(book);
+        return bookReadResponses.findBookById(id);
     }
 
     @PostMapping
@@ -111,6 +245,22 @@ public class BookController {
              return new ResponseEntity<>(bookSaved, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    @ApiOperation(value = "Saves a batch of books in the database",
+            notes = "Validates every book, saves the valid ones with unique isbn and returns a result per book",
+            response = BookBatchResult.class, responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = BookBatchResult.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 409, message = HTMLResponseMessages.HTTP_409),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<List<BookBatchResult>> saveBooks(@RequestBody List<Book> books) {
+        log.info("Create batch of new books, size: {}", books::size);
+        List<BookBatchResult> results = bookService.saveBooks(books);
+        log.debug("Batch of new books is processed: {}", results);
+        return ResponseEntity.ok(results);
+    }
+
     @PutMapping("/{id}")
     @ApiOperation(value = "Updates the book by id",
             notes = "Updates the book if provided id exists",
@@ -120,6 +270,7 @@ public class BookController {
             @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
             @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
             @ApiResponse(code = 406, message = HTMLResponseMessages.HTTP_406),
+            @ApiResponse(code = 409, message = HTMLResponseMessages.HTTP_409),
             @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
     @ResponseStatus(HttpStatus.ACCEPTED)
     public ResponseEntity<Book> updateBookById(@ApiParam(value = "id of the book", required = true)
@@ -131,10 +282,9 @@ public class BookController {
             log.error("Book is not updated: error {}", bindingResult);
             throw new BookControllerException(HttpStatus.BAD_REQUEST, "Bad request to update book");
         }
-        Optional<Book> book = bookService.findBookById(id);
-        bookService.updateBook(updatedBook, id);
-        log.debug("Book with id {} is updated: {}", id, updatedBook);
-        return new ResponseEntity<>(updatedBook, HttpStatus.ACCEPTED);
+        Book book = bookService.updateBook(updatedBook, id);
+        log.debug("Book with id {} is updated: {}", id, book);
+        return new ResponseEntity<>(book, HttpStatus.ACCEPTED);
     }
 
     @DeleteMapping("/{id}")
@@ -149,11 +299,9 @@ public class BookController {
     public ResponseEntity<Void> deleteBookById(@ApiParam(value = "The id of the book", required = true)
                                                @NonNull @PathVariable Long id) {
         log.info("Delete book by passing Id, where id is: {}", id);
-        Optional<Book> book = bookService.findBookById(id);
         bookService.deleteBookById(id);
-        log.debug("Book with id {} is deleted: {}", id, book);
+        log.debug("Book with id {} is deleted", id);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
 }
-
@@ -0,0 +1,66 @@
+package lv.alija.bookShop.web.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.service.BookService;
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.web.cache.CachedResponse;
+import lv.alija.bookShop.web.cache.JsonResponseCache;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Builds the answers of the read endpoints, shared by {@link BookController} and {@link AsyncBookController},
+ * so both answer the same body and ETag.
+ */
+@Log4j2
+@Component
+@RequiredArgsConstructor
+public class BookReadResponses {
+
+    private final BookService bookService;
+
+    private final JsonResponseCache jsonResponseCache;
+
+    public ResponseEntity<byte[]> findAllBooks() {
+        CachedResponse books = jsonResponseCache.bookList(bookService::findAllBooks);
+        log.debug("Book list is found.Bytes: {}", books.getBody().length);
+        return json(books);
+    }
+
+    public ResponseEntity<byte[]> findAllByAuthor(String author) {
+        CachedResponse books = jsonResponseCache.booksByAuthor(author, () -> bookService.findByAuthor(author));
+        log.debug("Book list by author is found.Bytes: {}", books.getBody().length);
+        return json(books);
+    }
+
+    public ResponseEntity<List<Book>> searchBooks(String query, int limit) {
+        List<Book> books = bookService.searchBooks(query, limit);
+        log.debug("Books are found by query '{}'.Size: {}", query, books.size());
+        return ResponseEntity.ok(books);
+    }
+
+    public ResponseEntity<byte[]> findBookById(Long id) {
+        CachedResponse book = jsonResponseCache.bookById(id, () -> bookService.findBookById(id));
+        log.debug("Book with id {} is found.Bytes: {}", id, book.getBody().length);
+        return json(book);
+    }
+
+    /**
+     * With the ETag set, Spring answers a matching If-None-Match with 304 and no body. A cached
+     * response is found without calling the service, so an unchanged resource is revalidated without
+     * loading or serializing anything. There is no Last-Modified: it only has second precision, and
+     * a change within the same second would be answered with 304.
+     */
+    private ResponseEntity<byte[]> json(CachedResponse response) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .eTag(response.getEtag())
+                .body(response.getBody());
+    }
+}
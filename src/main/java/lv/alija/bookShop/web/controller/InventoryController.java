@@ -0,0 +1,90 @@
+package lv.alija.bookShop.web.controller;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.service.InventoryService;
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.Reservation;
+import lv.alija.bookShop.swagger.DescriptionVariables;
+import lv.alija.bookShop.swagger.HTMLResponseMessages;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Api(tags = {DescriptionVariables.INVENTORY})
+@Log4j2
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/book")
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+
+    @PostMapping("/{id}/reserve")
+    @ApiOperation(value = "Reserves books from the stock",
+            notes = "Decreases the quantity of the book if there are enough books in stock",
+            response = Book.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
+            @ApiResponse(code = 409, message = HTMLResponseMessages.HTTP_409),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<Book> reserve(@ApiParam(value = "id of the book", required = true)
+                                        @NonNull @PathVariable("id") Long id,
+                                        @ApiParam(value = "number of books to reserve")
+                                        @RequestParam(value = "quantity", defaultValue = "1") long quantity) {
+        log.info("Reserve {} books with id {}.", quantity, id);
+        Book book = inventoryService.reserve(id, quantity);
+        log.debug("Books with id {} are reserved, left in stock: {}", id, book.getQuantity());
+        return ResponseEntity.ok(book);
+    }
+
+    @PostMapping("/{id}/release")
+    @ApiOperation(value = "Returns reserved books to the stock",
+            notes = "Increases the quantity of the book",
+            response = Book.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<Book> release(@ApiParam(value = "id of the book", required = true)
+                                        @NonNull @PathVariable("id") Long id,
+                                        @ApiParam(value = "number of books to release")
+                                        @RequestParam(value = "quantity", defaultValue = "1") long quantity) {
+        log.info("Release {} books with id {}.", quantity, id);
+        Book book = inventoryService.release(id, quantity);
+        log.debug("Books with id {} are released, left in stock: {}", id, book.getQuantity());
+        return ResponseEntity.ok(book);
+    }
+
+    @PostMapping("/reserve")
+    @ApiOperation(value = "Reserves all books of a cart",
+            notes = "Reserves every book of the cart in one transaction, or none if one of them is not available",
+            response = Book.class, responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = HTMLResponseMessages.HTTP_200, response = Book.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = HTMLResponseMessages.HTTP_400),
+            @ApiResponse(code = 404, message = HTMLResponseMessages.HTTP_404),
+            @ApiResponse(code = 409, message = HTMLResponseMessages.HTTP_409),
+            @ApiResponse(code = 500, message = HTMLResponseMessages.HTTP_500)})
+    public ResponseEntity<List<Book>> reserveAll(@RequestBody List<Reservation> reservations) {
+        log.info("Reserve cart: {}", reservations);
+        List<Book> books = inventoryService.reserveAll(reservations);
+        log.debug("Cart is reserved: {}", books);
+        return ResponseEntity.ok(books);
+    }
+}
@@ -0,0 +1,121 @@
+package lv.alija.bookShop.web.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.service.BookService;
+import lv.alija.bookShop.model.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes every book to the response as soon as it is read from the database,
+ * so the export never holds more than one fetch of rows in memory.
+ */
+@Log4j2
+@Component
+public class BookExportWriter {
+
+    private static final String CSV_HEADER = "id,title,author,genre,releaseYear,isbn,quantity,price,version";
+
+    private final BookService bookService;
+
+    private final ObjectWriter bookWriter;
+
+    private final long timeoutMillis;
+
+    public BookExportWriter(BookService bookService, ObjectMapper objectMapper,
+                            @Value("${bookshop.export.timeout-ms:600000}") long timeoutMillis) {
+        this.bookService = bookService;
+        this.bookWriter = objectMapper.writerFor(Book.class);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * How long an export may take before its request times out.
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void write(ExportFormat format, OutputStream outputStream) throws IOException {
+        AtomicLong count = new AtomicLong();
+        try {
+            if (format == ExportFormat.CSV) {
+                writeCsv(outputStream, count);
+            } else {
+                writeNdjson(outputStream, count);
+            }
+        } catch (UncheckedIOException e) {
+            log.warn("Book export is interrupted after {} books: {}", count.get(), e.getMessage());
+            throw e.getCause();
+        }
+        log.info("Book export in format {} is finished. Size is : {}", format, count.get());
+    }
+
+    private void writeNdjson(OutputStream outputStream, AtomicLong count) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(outputStream);
+        bookService.exportBooks(book -> {
+            try {
+                out.write(bookWriter.writeValueAsBytes(book));
+                out.write('\n');
+                count.incrementAndGet();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    private void writeCsv(OutputStream outputStream, AtomicLong count) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        out.write(CSV_HEADER);
+        out.write('\n');
+        bookService.exportBooks(book -> {
+            try {
+                out.write(String.valueOf(book.getId()));
+                out.write(',');
+                out.write(csvField(book.getTitle()));
+                out.write(',');
+                out.write(csvField(book.getAuthor()));
+                out.write(',');
+                out.write(csvField(book.getGenre()));
+                out.write(',');
+                out.write(String.valueOf(book.getReleaseYear()));
+                out.write(',');
+                out.write(csvField(book.getIsbn()));
+                out.write(',');
+                out.write(String.valueOf(book.getQuantity()));
+                out.write(',');
+                out.write(String.valueOf(book.getPrice()));
+                out.write(',');
+                out.write(String.valueOf(book.getVersion()));
+                out.write('\n');
+                count.incrementAndGet();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,28 @@
+package lv.alija.bookShop.web.export;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lv.alija.bookShop.exception.BookControllerException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+    private final MediaType mediaType;
+
+    private final String extension;
+
+    public static ExportFormat fromValue(String value) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new BookControllerException(HttpStatus.BAD_REQUEST, "Export format should be ndjson or csv");
+    }
+}
@@ -0,0 +1,134 @@
+package lv.alija.bookShop.web.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import lv.alija.bookShop.business.repository.ReactiveBookRepository;
+import lv.alija.bookShop.business.service.BookService;
+import lv.alija.bookShop.exception.BookControllerException;
+import lv.alija.bookShop.exception.ExceptionResponse;
+import lv.alija.bookShop.model.Book;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+/**
+ * Reactive variants of the read endpoints of the book controller. Lists are streamed as
+ * newline delimited JSON, one book per line, as fast as the client reads them.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "bookshop.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveBookHandler {
+
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+
+    private final ReactiveBookRepository reactiveBookRepository;
+
+    private final BookService bookService;
+
+    private final ObjectMapper objectMapper;
+
+    public Mono<ServerResponse> findAllBooks(ServerRequest request) {
+        log.info("Retrieve stream of the books.");
+        return ndjson(reactiveBookRepository.findAllBooks()
+                .switchIfEmpty(Mono.error(() -> new BookControllerException(HttpStatus.NOT_FOUND, "Book list is empty"))));
+    }
+
+    public Mono<ServerResponse> findAllByAuthor(ServerRequest request) {
+        String author = request.pathVariable("author");
+        log.info("Retrieve stream of the books by author {}.", author);
+        return ndjson(reactiveBookRepository.findByAuthor(author)
+                .switchIfEmpty(Mono.error(() -> new BookControllerException(HttpStatus.NOT_FOUND,
+                        "Book list by this author is empty"))));
+    }
+
+    /**
+     * The search index is in memory, so the search is done on the event loop.
+     */
+    public Mono<ServerResponse> searchBooks(ServerRequest request) {
+        String query = request.queryParam("q").orElse(null);
+        int limit = request.queryParam("limit").map(ReactiveBookHandler::parseLimit).orElse(DEFAULT_SEARCH_LIMIT);
+        log.info("Search stream of the books by query '{}', limit {}.", query, limit);
+        return ndjson(Flux.defer(() -> Flux.fromIterable(bookService.searchBooks(query, limit))));
+    }
+
+    public Mono<ServerResponse> findBookById(ServerRequest request) {
+        Long id = parseId(request.pathVariable("id"));
+        log.info("Retrieve book by book id {}.", id);
+        return reactiveBookRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new BookControllerException(HttpStatus.NOT_FOUND,
+                        "Book with this id is not found")))
+                .flatMap(book -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(book));
+    }
+
+    /**
+     * Answers errors with the same body as the servlet exception handler. An error after the first book
+     * of a stream can not change the status any more, the connection is closed instead.
+     */
+    public Mono<Void> handleError(ServerWebExchange exchange, Throwable ex) {
+        ServerHttpResponse response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.error(ex);
+        }
+        HttpStatus status;
+        String message;
+        if (ex instanceof BookControllerException) {
+            status = ((BookControllerException) ex).getErrorCode();
+            message = ex.getMessage();
+        } else if (ex instanceof ResponseStatusException) {
+            status = ((ResponseStatusException) ex).getStatus();
+            message = ((ResponseStatusException) ex).getReason();
+        } else {
+            log.error("Reactive request {} failed", exchange.getRequest().getPath(), ex);
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            message = "Internal server error";
+        }
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(new ExceptionResponse(message, new Date(),
+                    "uri=" + exchange.getRequest().getPath()));
+            response.setStatusCode(status);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static Mono<ServerResponse> ndjson(Flux<Book> books) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(books, Book.class);
+    }
+
+    private static Long parseId(String id) {
+        try {
+            long value = Long.parseLong(id);
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            log.debug("Book id {} is not a number", id);
+        }
+        log.warn("Book id is not null or negative number. Insert only positive numbers. ");
+        throw new BookControllerException(HttpStatus.BAD_REQUEST, "Id should be bigger then null");
+    }
+
+    private static int parseLimit(String limit) {
+        try {
+            return Integer.parseInt(limit);
+        } catch (NumberFormatException e) {
+            throw new BookControllerException(HttpStatus.BAD_REQUEST, "Limit should be a number");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package lv.alija.bookShop.web.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Serves the reactive read endpoints on their own Netty server next to the servlet container,
+ * under the same paths as the book controller: /book/list, /book/list/{author}, /book/search and /book/{id}.
+ * Both stacks read the same database, so they can be load tested side by side.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "bookshop.reactive.enabled", havingValue = "true")
+public class ReactiveBookServer implements SmartLifecycle {
+
+    private final ReactiveBookHandler reactiveBookHandler;
+
+    private final ObjectMapper objectMapper;
+
+    private final int port;
+
+    private volatile DisposableServer server;
+
+    public ReactiveBookServer(ReactiveBookHandler reactiveBookHandler, ObjectMapper objectMapper,
+                              @Value("${bookshop.reactive.port:8083}") int port) {
+        this.reactiveBookHandler = reactiveBookHandler;
+        this.objectMapper = objectMapper;
+        this.port = port;
+    }
+
+    RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/book/list", reactiveBookHandler::findAllBooks)
+                .GET("/book/list/{author}", reactiveBookHandler::findAllByAuthor)
+                .GET("/book/search", reactiveBookHandler::searchBooks)
+                .GET("/book/{id}", reactiveBookHandler::findBookById)
+                .build();
+    }
+
+    HandlerStrategies strategies() {
+        return HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .exceptionHandler(reactiveBookHandler::handleError)
+                .build();
+    }
+
+    @Override
+    public void start() {
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(routes(), strategies());
+        server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        log.info("Reactive book endpoints are served on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer running = server;
+        if (running != null) {
+            running.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * The bound port, differs from the configured one when that is 0.
+     */
+    public int getPort() {
+        DisposableServer running = server;
+        return running == null ? port : running.port();
+    }
+}
@@ -3,3 +3,5 @@ INSERT INTO BOOK (id, title, author, genre, release_year, isbn, quantity, price)
 VALUES (1, 'Title', 'Author', 'Genre', 2022, '000-00-00000-00-0', 1, 5);
 INSERT INTO BOOK (id, title, author, genre, release_year, isbn, quantity, price)
 VALUES (2, 'Title2', 'Author2', 'Genre2', 2022, '000-00-00000-00-1', 2, 4);
+
+INSERT INTO CATALOG_GENERATION (id) VALUES (1);
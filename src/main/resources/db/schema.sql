@@ -1,13 +1,47 @@
 DROP TABLE IF EXISTS BOOK;
+DROP TABLE IF EXISTS CATALOG_GENERATION;
+DROP SEQUENCE IF EXISTS BOOK_SEQ;
 
 CREATE TABLE BOOK (
-  id bigint(20) NOT NULL AUTO_INCREMENT,
+  id bigint(20) NOT NULL,
   title varchar(250) NOT NULL,
   author varchar(250) NOT NULL,
+  author_normalized varchar(250) AS LOWER(TRIM(author)),
   genre varchar(250) NOT NULL,
+  genre_normalized varchar(250) AS LOWER(TRIM(genre)),
   release_year bigint(5) NOT NULL,
   isbn varchar(17) NOT NULL,
+  isbn_normalized varchar(17) AS LOWER(TRIM(isbn)),
   quantity bigint NOT NULL,
   price bigint NOT NULL,
+  version bigint NOT NULL DEFAULT 0,
+  PRIMARY KEY (id)
+  );
+
+CREATE UNIQUE INDEX ux_book_isbn_normalized ON BOOK (isbn_normalized);
+
+-- Indexes for GET /book/filter: an equality on genre or author followed by a range on
+-- release_year or price, and the price range on its own. Genre and author are compared
+-- case-insensitively through their normalized columns. The author index also serves
+-- the case-insensitive author lookup, as its leading column.
+CREATE INDEX ix_book_genre_normalized_release_year ON BOOK (genre_normalized, release_year);
+CREATE INDEX ix_book_genre_normalized_price ON BOOK (genre_normalized, price);
+CREATE INDEX ix_book_author_normalized_release_year ON BOOK (author_normalized, release_year);
+CREATE INDEX ix_book_price ON BOOK (price);
+
+-- Pooled id generator for BookDAO: Hibernate reserves 50 ids per round trip, which keeps
+-- inserts batchable. Starts after the rows inserted by data.sql, and is the only source of
+-- ids: the id column has no AUTO_INCREMENT default that could hand out the same ids.
+CREATE SEQUENCE BOOK_SEQ START WITH 3 INCREMENT BY 50;
+
+-- Generation of the catalog: with bookshop.snapshot.file set, its single row is increased in the
+-- transaction of every write of the book table. The catalog snapshot file carries the generation
+-- it was read at and is only used while the table still has that generation, which is a lookup of
+-- one row instead of a read of every book. The row starts at a random generation, so a table that
+-- is created and seeded again, as on every start with the in-memory database, never has the
+-- generation of a file written for the previous one.
+CREATE TABLE CATALOG_GENERATION (
+  id int NOT NULL,
+  generation bigint NOT NULL DEFAULT CAST(RAND() * 4000000000000000000 AS BIGINT),
   PRIMARY KEY (id)
   );
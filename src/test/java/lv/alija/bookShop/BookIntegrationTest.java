@@ -4,8 +4,10 @@ import lv.alija.bookShop.model.Book;
 import org.json.JSONException;
 import org.junit.jupiter.api.Test;
 import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.HttpEntity;
@@ -17,9 +19,11 @@ import org.springframework.test.annotation.DirtiesContext;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @EnableAutoConfiguration
+@AutoConfigureMetrics
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 class BookIntegrationTest {
 
@@ -39,6 +43,13 @@ class BookIntegrationTest {
         assertEquals(HttpStatus.BAD_REQUEST, err.getStatusCode());
     }
 
+    @Test
+    public void findBookFieldsIntTest() throws JSONException {
+        String response = this.restTemplate.getForObject("/book/list?fields=id,title,price", String.class);
+        JSONAssert.assertEquals("[{id:1, title:'Title', price:5}, {id:2, title:'Title2', price:4}]",
+                response, JSONCompareMode.STRICT);
+    }
+
     @Test
     public void findBookByIdIntTest() throws JSONException {
         ResponseEntity<String> response = this.restTemplate.getForEntity("/book/{id}", String.class, 1 );
@@ -63,6 +74,12 @@ class BookIntegrationTest {
         JSONAssert.assertEquals("[{id:1}]", response, false);
     }
 
+    @Test
+    public void findBookByAuthorIntTest_IgnoresCase() throws JSONException {
+        String response = this.restTemplate.getForObject("/book/list/{author}", String.class, "aUTHOR2");
+        JSONAssert.assertEquals("[{id:2}]", response, false);
+    }
+
     @Test
     public void return404_FindByAuthor_BadUrlAuthor(){
         ResponseEntity<String> err = restTemplate.getForEntity("/book/list/{author}", String.class, "Anything");
@@ -81,6 +98,7 @@ class BookIntegrationTest {
         book.setQuantity(1L);
         book.setPrice(15L);
         ResponseEntity<Book> responseEntity = this.restTemplate.postForEntity("/book", book, Book.class );
+        book.setVersion(0L);
         assertAll(
                 () -> assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode()),
                 () -> assertEquals(book, responseEntity.getBody()));
@@ -211,4 +229,26 @@ class BookIntegrationTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void filterBooksIntTest() throws JSONException {
+        String response = this.restTemplate.getForObject(
+                "/book/filter?minReleaseYear=2022&maxPrice=5&inStock=true&sort=price,desc", String.class);
+        JSONAssert.assertEquals("{content:[{id:1}, {id:2}], hasNext:false}", response, JSONCompareMode.STRICT_ORDER);
+
+        String firstPage = this.restTemplate.getForObject("/book/filter?minReleaseYear=2022&size=1", String.class);
+        JSONAssert.assertEquals("{content:[{id:1}], hasNext:true}", firstPage, JSONCompareMode.STRICT_ORDER);
+        String lastPage = this.restTemplate.getForObject("/book/filter?minReleaseYear=2022&page=1&size=1", String.class);
+        JSONAssert.assertEquals("{content:[{id:2}], hasNext:false}", lastPage, JSONCompareMode.STRICT_ORDER);
+    }
+
+    @Test
+    public void prometheusEndpointIntTest() {
+        this.restTemplate.getForObject("/book/list", String.class);
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(response.getBody().contains("bookshop_service_seconds_count"));
+        assertTrue(response.getBody().contains("http_server_requests_seconds_bucket"));
+        assertTrue(response.getBody().contains("hikaricp_connections"));
+    }
+
+}
@@ -0,0 +1,55 @@
+package lv.alija.bookShop;
+
+import lv.alija.bookShop.web.reactive.ReactiveBookServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.hamcrest.Matchers.containsString;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactiveBookShopDb",
+        "bookshop.reactive.r2dbc-url=r2dbc:h2:mem:///reactiveBookShopDb",
+        "bookshop.reactive.enabled=true",
+        "bookshop.reactive.port=0"})
+class ReactiveBookIntegrationTest {
+
+    @Autowired
+    private ReactiveBookServer reactiveBookServer;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + reactiveBookServer.getPort())
+                .build();
+    }
+
+    @Test
+    void findAllBooksIntTest() {
+        webTestClient.get().uri("/book/list")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(String.class).hasSize(2);
+    }
+
+    @Test
+    void findBookByAuthorIntTest_IgnoresCase() {
+        webTestClient.get().uri("/book/list/{author}", " AUTHOR2 ")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).value(containsString("\"title\":\"Title2\""));
+    }
+
+    @Test
+    void findBookByIdIntTest_NotFound() {
+        webTestClient.get().uri("/book/{id}", 63)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
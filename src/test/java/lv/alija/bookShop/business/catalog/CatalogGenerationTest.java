@@ -0,0 +1,62 @@
+package lv.alija.bookShop.business.catalog;
+
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CatalogGenerationTest {
+
+    private BookRepository bookRepository;
+
+    private CatalogGeneration catalogGeneration;
+
+    @BeforeEach
+    public void setUp() {
+        bookRepository = mock(BookRepository.class);
+        catalogGeneration = new CatalogGeneration(bookRepository, "catalog.snapshot");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void everyChangeWithoutTransactionIncreasesGenerationTest() {
+        catalogGeneration.onBookChanged(BookChangedEvent.deleted(1L));
+        catalogGeneration.onBookChanged(BookChangedEvent.deleted(2L));
+        verify(bookRepository, times(2)).incrementCatalogGeneration();
+    }
+
+    @Test
+    void withoutSnapshotFileGenerationIsNotIncreasedTest() {
+        CatalogGeneration disabled = new CatalogGeneration(bookRepository, " ");
+        disabled.onBookChanged(BookChangedEvent.deleted(1L));
+        assertFalse(disabled.isEnabled());
+        verify(bookRepository, never()).incrementCatalogGeneration();
+    }
+
+    @Test
+    void transactionIncreasesGenerationOnceTest() {
+        TransactionSynchronizationManager.initSynchronization();
+        catalogGeneration.onBookChanged(BookChangedEvent.deleted(1L));
+        catalogGeneration.onBookChanged(BookChangedEvent.deleted(2L));
+        verify(bookRepository, times(1)).incrementCatalogGeneration();
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertFalse(TransactionSynchronizationManager.hasResource(catalogGeneration));
+    }
+}
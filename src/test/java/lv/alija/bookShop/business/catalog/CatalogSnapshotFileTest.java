@@ -0,0 +1,249 @@
+package lv.alija.bookShop.business.catalog;
+
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.inventory.InventoryCounters;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.business.repository.BookGenerationRepositoryImpl;
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogSnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    private Path path;
+
+    private CatalogSnapshot snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        path = directory.resolve("catalog.snapshot");
+        snapshot = CatalogSnapshot.of(Arrays.asList(
+                createBook(3L, "Author2", "000-00-00-0003"),
+                createBook(1L, "Author1", "000-00-00-0001"),
+                createBook(2L, "Autorė", "000-00-00-0002"),
+                createBook(5L, "Author2", "000-00-00-0005")));
+    }
+
+    @Test
+    void readsWrittenSnapshotTest() throws IOException {
+        CatalogSnapshotFile.write(snapshot, 7L, path);
+        CatalogSnapshotFile file = CatalogSnapshotFile.open(path);
+        assertEquals(4, file.size());
+        for (Book book : snapshot.books()) {
+            assertEquals(book, file.findById(book.getId()).get());
+        }
+        assertFalse(file.findById(4L).isPresent());
+        assertFalse(file.findById(6L).isPresent());
+        assertEquals(snapshot.findByAuthor("Author2"), file.findByAuthor(" aUTHOR2 "));
+        assertEquals("Autorė", file.findByAuthor("AUTORĖ").get(0).getAuthor());
+        assertTrue(file.findByAuthor("Author3").isEmpty());
+        assertEquals(3L, file.findByIsbn("000-00-00-0003 ").get().getId());
+        assertFalse(file.findByIsbn("000-00-00-0004").isPresent());
+        assertEquals(7L, file.getGeneration());
+    }
+
+    @Test
+    void writesBookWithoutAuthorTest() throws IOException {
+        CatalogSnapshotFile.write(snapshot.withBook(createBook(4L, null, "000-00-00-0004")), 7L, path);
+        CatalogSnapshotFile file = CatalogSnapshotFile.open(path);
+        assertEquals(5, file.size());
+        assertEquals(4L, file.findById(4L).get().getId());
+        assertEquals(2, file.findByAuthor("Author2").size());
+        assertTrue(file.findByAuthor(null).isEmpty());
+    }
+
+    @Test
+    void writesBooksWithLoneSurrogatesTest() throws IOException {
+        Book broken = createBook(4L, "Author\uD83D", "000-00-00-0004");
+        broken.setTitle("Title\uDC9A");
+        CatalogSnapshotFile.write(snapshot.withBook(broken), 7L, path);
+        CatalogSnapshotFile file = CatalogSnapshotFile.open(path);
+        assertEquals("Title?", file.findById(4L).get().getTitle());
+        assertEquals("Author?", file.findById(4L).get().getAuthor());
+        assertEquals(snapshot.findById(5L).get(), file.findById(5L).get());
+        assertEquals(2, file.findByAuthor("Author2").size());
+        assertEquals(5L, file.findByIsbn("000-00-00-0005").get().getId());
+    }
+
+    @Test
+    void readsLargeSnapshotTest() throws IOException {
+        List<Book> books = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            books.add(createBook(id * 2, "Author" + id % 100, String.format("978-%013d", id)));
+        }
+        CatalogSnapshotFile.write(CatalogSnapshot.of(books), 7L, path);
+        CatalogSnapshotFile file = CatalogSnapshotFile.open(path);
+        assertEquals(5000, file.size());
+        assertEquals("Author77", file.findById(2 * 4077L).get().getAuthor());
+        assertFalse(file.findById(4077L).isPresent());
+        assertEquals(50, file.findByAuthor("author7").size());
+        assertEquals(2 * 4077L, file.findByIsbn("978-0000000004077").get().getId());
+    }
+
+    @Test
+    void rejectsOtherFilesTest() throws IOException {
+        Files.write(path, new byte[]{1, 2, 3});
+        assertThrows(IllegalStateException.class, () -> CatalogSnapshotFile.open(path));
+        CatalogSnapshotFile.write(snapshot, 7L, path);
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(4, CatalogSnapshotFile.FORMAT_VERSION + 1);
+        Files.write(path, bytes);
+        assertThrows(IllegalStateException.class, () -> CatalogSnapshotFile.open(path));
+    }
+
+    @Test
+    void serviceAnswersFromFileUntilLoadedTest() throws IOException {
+        CatalogSnapshotFile.write(snapshot, 7L, path);
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findCatalogGeneration()).thenReturn(7L);
+        CatalogSnapshotService service = new CatalogSnapshotService(bookRepository, path.toString());
+        service.open();
+        assertTrue(service.isLoaded());
+        assertEquals("Author2", service.findById(3L).get().getAuthor());
+        assertEquals(2, service.findByAuthor("Author2").size());
+        verify(bookRepository, never()).findAllBooks();
+
+        service.onBookChanged(BookChangedEvent.deleted(3L));
+        assertFalse(service.isLoaded());
+
+        when(bookRepository.findCatalogGeneration()).thenReturn(8L);
+        when(bookRepository.findAllBooks()).thenReturn(Arrays.asList(createBook(7L, "Author7", "000-00-00-0007")));
+        service.load();
+        assertTrue(service.isLoaded());
+        assertFalse(service.findById(3L).isPresent());
+        CatalogSnapshotFile file = CatalogSnapshotFile.open(path);
+        assertEquals(1, file.size());
+        assertEquals(8L, file.getGeneration());
+    }
+
+    @Test
+    void serviceSkipsFileOfChangedTableTest() throws IOException {
+        CatalogSnapshotFile.write(snapshot, 7L, path);
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findCatalogGeneration()).thenReturn(8L);
+        CatalogSnapshotService service = new CatalogSnapshotService(bookRepository, path.toString());
+        service.open();
+        assertFalse(service.isLoaded());
+    }
+
+    @Test
+    void serviceWritesFileOnCloseOnlyAfterChangeTest() throws IOException {
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findCatalogGeneration()).thenReturn(7L);
+        when(bookRepository.findAllBooks()).thenReturn(snapshot.books());
+        CatalogSnapshotService service = new CatalogSnapshotService(bookRepository, path.toString());
+        service.load();
+        service.close();
+        verify(bookRepository, times(1)).findAllBooks();
+
+        when(bookRepository.findCatalogGeneration()).thenReturn(8L);
+        when(bookRepository.findAllBooks()).thenReturn(snapshot.withoutBook(5L).books());
+        service.close();
+        CatalogSnapshotFile file = CatalogSnapshotFile.open(path);
+        assertEquals(3, file.size());
+        assertEquals(8L, file.getGeneration());
+    }
+
+    @Test
+    void serviceSkipsFileOfReseededTableTest() throws IOException {
+        EmbeddedDatabase first = seededDatabase();
+        EmbeddedDatabase second = seededDatabase();
+        try {
+            long generation = new BookGenerationRepositoryImpl(new JdbcTemplate(first)).findCatalogGeneration();
+            CatalogSnapshotFile.write(snapshot, generation, path);
+            BookGenerationRepositoryImpl reseeded = new BookGenerationRepositoryImpl(new JdbcTemplate(second));
+            BookRepository bookRepository = mock(BookRepository.class);
+            when(bookRepository.findCatalogGeneration()).thenAnswer(invocation -> reseeded.findCatalogGeneration());
+            CatalogSnapshotService service = new CatalogSnapshotService(bookRepository, path.toString());
+            service.open();
+            assertFalse(service.isLoaded());
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    @Test
+    void serviceSkipsFileAfterInventoryFlushTest() throws IOException {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true).build();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(database);
+            jdbc.execute("CREATE TABLE book (id BIGINT PRIMARY KEY, quantity BIGINT, version BIGINT DEFAULT 0)");
+            jdbc.execute("CREATE TABLE catalog_generation (id INT PRIMARY KEY, generation BIGINT)");
+            jdbc.update("INSERT INTO catalog_generation VALUES (1, 7)");
+            snapshot.books().forEach(book -> jdbc.update("INSERT INTO book (id, quantity) VALUES (?, ?)",
+                    book.getId(), book.getQuantity()));
+            CatalogSnapshotFile.write(snapshot, 7L, path);
+            BookGenerationRepositoryImpl generationRepository = new BookGenerationRepositoryImpl(jdbc);
+            BookRepository bookRepository = mock(BookRepository.class);
+            when(bookRepository.findCatalogGeneration())
+                    .thenAnswer(invocation -> generationRepository.findCatalogGeneration());
+            CatalogSnapshotService service = new CatalogSnapshotService(bookRepository, path.toString());
+            service.open();
+            assertTrue(service.isLoaded());
+
+            // stock written behind by the counters publishes no book change, the flush increases the generation
+            InventoryCounters counters = new InventoryCounters(jdbc,
+                    new TransactionTemplate(new DataSourceTransactionManager(database)),
+                    mock(ApplicationEventPublisher.class), new CatalogGeneration(bookRepository, path.toString()));
+            counters.load();
+            counters.take(1L, 1L);
+            counters.flush();
+            assertEquals(8L, generationRepository.findCatalogGeneration());
+
+            CatalogSnapshotService restarted = new CatalogSnapshotService(bookRepository, path.toString());
+            restarted.open();
+            assertFalse(restarted.isLoaded());
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    private static EmbeddedDatabase seededDatabase() {
+        return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                .addScript("db/schema.sql").addScript("db/data.sql").build();
+    }
+
+    private Book createBook(Long id, String author, String isbn) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Title" + id);
+        book.setAuthor(author);
+        book.setGenre("Genre1");
+        book.setReleaseYear(2022L);
+        book.setIsbn(isbn);
+        book.setQuantity(2L);
+        book.setPrice(4L);
+        return book;
+    }
+}
@@ -0,0 +1,118 @@
+package lv.alija.bookShop.business.catalog;
+
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CatalogSnapshotServiceTest {
+
+    private CatalogSnapshotService service;
+
+    @BeforeEach
+    public void setUp() {
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findAllBooks()).thenReturn(Arrays.asList(createBook(1L), createBook(2L)));
+        service = new CatalogSnapshotService(bookRepository, "");
+        service.load();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void changesAreAppliedWithoutTransactionTest() {
+        service.onBookChanged(BookChangedEvent.deleted(1L));
+        assertFalse(service.findById(1L).isPresent());
+    }
+
+    @Test
+    void changesOfTransactionAreAppliedAfterCommitTest() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.onBookChanged(BookChangedEvent.saved(createBook(3L)));
+        service.onBookChanged(BookChangedEvent.saved(createBook(4L)));
+        service.onBookChanged(BookChangedEvent.deleted(1L));
+        assertEquals(2, service.getSnapshot().size());
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+        CatalogSnapshot before = service.getSnapshot();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(3, service.getSnapshot().size());
+        assertFalse(service.findById(1L).isPresent());
+        assertTrue(service.findById(4L).isPresent());
+        assertEquals(2, before.size());
+    }
+
+    @Test
+    void changesOfRolledBackTransactionAreDroppedTest() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.onBookChanged(BookChangedEvent.deleted(1L));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertTrue(service.findById(1L).isPresent());
+    }
+
+    @Test
+    void stockChangeIsAppliedAsOneSnapshotTest() {
+        CatalogSnapshot before = service.getSnapshot();
+        Book first = createBook(1L);
+        first.setQuantity(7L);
+        Book second = createBook(2L);
+        second.setQuantity(9L);
+
+        service.onStockChanged(new StockChangedEvent(Arrays.asList(first, second)));
+
+        assertEquals(7L, service.findById(1L).get().getQuantity());
+        assertEquals(9L, service.findById(2L).get().getQuantity());
+        assertEquals(2L, before.findById(1L).get().getQuantity());
+    }
+
+    @Test
+    void changeDuringLoadIsNotBlockedAndKeptTest() {
+        BookRepository bookRepository = mock(BookRepository.class);
+        CatalogSnapshotService loading = new CatalogSnapshotService(bookRepository, "");
+        when(bookRepository.findAllBooks()).thenAnswer(invocation -> {
+            // the table was read before the delete committed, the delete is applied from another thread
+            Thread writer = new Thread(() -> loading.onBookChanged(BookChangedEvent.deleted(1L)));
+            writer.start();
+            writer.join(5000);
+            assertFalse(writer.isAlive());
+            return Arrays.asList(createBook(1L), createBook(2L));
+        });
+        loading.load();
+        assertTrue(loading.isLoaded());
+        assertFalse(loading.findById(1L).isPresent());
+        assertTrue(loading.findById(2L).isPresent());
+    }
+
+    private Book createBook(Long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Title" + id);
+        book.setAuthor("Author" + id);
+        book.setGenre("Genre1");
+        book.setReleaseYear(2022L);
+        book.setIsbn("000-00-00-000" + id);
+        book.setQuantity(2L);
+        book.setPrice(4L);
+        return book;
+    }
+}
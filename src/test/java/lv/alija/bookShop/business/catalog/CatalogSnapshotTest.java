@@ -0,0 +1,100 @@
+package lv.alija.bookShop.business.catalog;
+
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSnapshotTest {
+
+    private CatalogSnapshot snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        snapshot = CatalogSnapshot.of(Arrays.asList(
+                createBook(3L, "Author2", "000-00-00-0003"),
+                createBook(1L, "Author1", "000-00-00-0001")));
+    }
+
+    @Test
+    void findByIdTest() {
+        assertEquals("Author1", snapshot.findById(1L).get().getAuthor());
+        assertFalse(snapshot.findById(2L).isPresent());
+    }
+
+    @Test
+    void findByIndexesTest() {
+        assertEquals(1, snapshot.findByAuthor("Author2").size());
+        assertEquals(1, snapshot.findByAuthor(" aUTHOR2 ").size());
+        assertEquals(2, snapshot.findByGenre("Genre1").size());
+        assertTrue(snapshot.findByIsbn(" 000-00-00-0003").isPresent());
+        assertTrue(snapshot.findByAuthor("Author3").isEmpty());
+    }
+
+    @Test
+    void withBookTest() {
+        CatalogSnapshot updated = snapshot.withBook(createBook(2L, "Author2", "000-00-00-0002"))
+                .withBook(createBook(1L, "Author2", "000-00-00-0001"));
+        assertEquals(3, updated.size());
+        assertEquals(Arrays.asList(1L, 2L, 3L), Arrays.asList(updated.books().get(0).getId(),
+                updated.books().get(1).getId(), updated.books().get(2).getId()));
+        assertEquals(3, updated.findByAuthor("Author2").size());
+        assertTrue(updated.findByAuthor("Author1").isEmpty());
+        assertEquals(2, snapshot.size());
+    }
+
+    @Test
+    void withoutBookTest() {
+        CatalogSnapshot updated = snapshot.withoutBook(3L);
+        assertEquals(1, updated.size());
+        assertFalse(updated.findById(3L).isPresent());
+        assertFalse(updated.findByIsbn("000-00-00-0003").isPresent());
+        assertSame(updated, updated.withoutBook(3L));
+    }
+
+    @Test
+    void withChangesTest() {
+        Map<Long, Book> changes = new HashMap<>();
+        changes.put(4L, createBook(4L, "Author4", "000-00-00-0004"));
+        changes.put(3L, null);
+        changes.put(2L, createBook(2L, "Author2", "000-00-00-0002"));
+        changes.put(1L, createBook(1L, "Author2", "000-00-00-0001"));
+        CatalogSnapshot updated = snapshot.withChanges(changes);
+        assertEquals(Arrays.asList(1L, 2L, 4L), Arrays.asList(updated.books().get(0).getId(),
+                updated.books().get(1).getId(), updated.books().get(2).getId()));
+        assertEquals(2, updated.findByAuthor("Author2").size());
+        assertFalse(updated.findByIsbn("000-00-00-0003").isPresent());
+        assertSame(updated, updated.withChanges(Collections.emptyMap()));
+    }
+
+    @Test
+    void booksAreCopiedTest() {
+        Book book = createBook(2L, "Author2", "000-00-00-0002");
+        CatalogSnapshot updated = snapshot.withBook(book);
+        book.setAuthor("Author3");
+        assertEquals("Author2", updated.findById(2L).get().getAuthor());
+        assertTrue(updated.findByAuthor("Author3").isEmpty());
+    }
+
+    private Book createBook(Long id, String author, String isbn) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Title" + id);
+        book.setAuthor(author);
+        book.setGenre("Genre1");
+        book.setReleaseYear(2022L);
+        book.setIsbn(isbn);
+        book.setQuantity(2L);
+        book.setPrice(4L);
+        return book;
+    }
+}
@@ -0,0 +1,312 @@
+package lv.alija.bookShop.business.inventory;
+
+import lv.alija.bookShop.business.catalog.CatalogGeneration;
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockFlushedEvent;
+import lv.alija.bookShop.business.repository.BookGenerationRepositoryImpl;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryCountersTest {
+
+    InventoryCounters inventoryCounters;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @BeforeEach
+    void setUp() {
+        inventoryCounters = new InventoryCounters(jdbcTemplate, new TransactionTemplate(transactionManager),
+                eventPublisher, catalogGeneration("catalog.snapshot"));
+    }
+
+    @Test
+    void takeTest() {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, 3L)));
+        assertEquals(OptionalLong.of(1L), inventoryCounters.take(1L, 2L));
+        assertFalse(inventoryCounters.take(1L, 2L).isPresent());
+        assertEquals(OptionalLong.of(2L), inventoryCounters.give(1L, 1L));
+    }
+
+    @Test
+    void giveTest_OverflowKeepsStock() {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, Long.MAX_VALUE - 1)));
+        assertThrows(ArithmeticException.class, () -> inventoryCounters.give(1L, 2L));
+        assertEquals(OptionalLong.of(Long.MAX_VALUE - 2), inventoryCounters.take(1L, 1L));
+        inventoryCounters.flush();
+        ArgumentCaptor<StockFlushedEvent> captor = ArgumentCaptor.forClass(StockFlushedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(Collections.singletonMap(1L, Long.MAX_VALUE - 2), captor.getValue().getStocks());
+    }
+
+    @Test
+    void takeTest_LoadsMissingBookFromTable() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1L)))
+                .thenReturn(Collections.singletonList(5L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(63L)))
+                .thenReturn(Collections.emptyList());
+        assertEquals(OptionalLong.of(4L), inventoryCounters.take(1L, 1L));
+        assertFalse(inventoryCounters.take(63L, 1L).isPresent());
+        assertFalse(inventoryCounters.contains(63L));
+    }
+
+    @Test
+    void takeTest_ConcurrentReservationsNeverOversell() throws InterruptedException {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, 1000L)));
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 2000; i++) {
+            executor.execute(() -> {
+                if (inventoryCounters.take(1L, 1L).isPresent()) {
+                    reserved.incrementAndGet();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1000, reserved.get());
+        assertFalse(inventoryCounters.take(1L, 1L).isPresent());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushTest_WritesNetDeltasOnce() {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, 10L)));
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(2L, 10L)));
+        inventoryCounters.take(1L, 3L);
+        inventoryCounters.give(1L, 1L);
+        inventoryCounters.flush();
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertArrayEquals(new Object[]{-2L, 1L}, captor.getValue().get(0));
+
+        inventoryCounters.flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        assertEquals(1, inventoryCounters.getFlushedDeltas());
+    }
+
+    @Test
+    void flushTest_PublishesStockOfWrittenBooks() {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, 10L)));
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(2L, 10L)));
+        inventoryCounters.take(1L, 3L);
+        inventoryCounters.take(1L, 1L);
+        inventoryCounters.flush();
+        ArgumentCaptor<StockFlushedEvent> captor = ArgumentCaptor.forClass(StockFlushedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(Collections.singletonMap(1L, 6L), captor.getValue().getStocks());
+
+        inventoryCounters.flush();
+        inventoryCounters.take(2L, 1L);
+        inventoryCounters.close();
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushTest_FailedBatchIsRetried() {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, 10L)));
+        inventoryCounters.take(1L, 3L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenReturn(new int[]{1});
+        inventoryCounters.flush();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        inventoryCounters.flush();
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), captor.capture());
+        assertArrayEquals(new Object[]{-3L, 1L}, captor.getValue().get(0));
+    }
+
+    @Test
+    void flushTest_BatchFailingPartWayIsRolledBack() {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true).build();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(database);
+            jdbc.execute("CREATE TABLE book (id BIGINT PRIMARY KEY, quantity BIGINT, version BIGINT DEFAULT 0)");
+            jdbc.execute("CREATE TABLE catalog_generation (id INT PRIMARY KEY, generation BIGINT)");
+            jdbc.update("INSERT INTO catalog_generation VALUES (1, 0)");
+            jdbc.update("INSERT INTO book (id, quantity) VALUES (1, 10), (2, ?)", Long.MAX_VALUE);
+            InventoryCounters counters = new InventoryCounters(jdbc,
+                    new TransactionTemplate(new DataSourceTransactionManager(database)), eventPublisher,
+                    catalogGeneration("catalog.snapshot"));
+            counters.onBookChanged(BookChangedEvent.saved(book(1L, 10L)));
+            counters.onBookChanged(BookChangedEvent.saved(book(2L, 0L)));
+            counters.take(1L, 3L);
+            counters.give(2L, 1L);
+
+            // the delta of book 1 is written first, the one of book 2 overflows the column
+            counters.flush();
+            assertEquals(10L, jdbc.queryForObject("SELECT quantity FROM book WHERE id = 1", Long.class));
+            verify(eventPublisher, never()).publishEvent(any(Object.class));
+
+            jdbc.update("UPDATE book SET quantity = 0 WHERE id = 2");
+            counters.flush();
+            assertEquals(7L, jdbc.queryForObject("SELECT quantity FROM book WHERE id = 1", Long.class));
+            assertEquals(1L, jdbc.queryForObject("SELECT quantity FROM book WHERE id = 2", Long.class));
+            assertEquals(2, counters.getFlushedDeltas());
+            assertEquals(1L, jdbc.queryForObject("SELECT generation FROM catalog_generation", Long.class));
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    void flushTest_StalePutAfterFlushIsRejected() {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true).build();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(database);
+            jdbc.execute("CREATE TABLE book (id BIGINT PRIMARY KEY, quantity BIGINT, version BIGINT DEFAULT 0)");
+            jdbc.execute("CREATE TABLE catalog_generation (id INT PRIMARY KEY, generation BIGINT)");
+            jdbc.update("INSERT INTO catalog_generation VALUES (1, 0)");
+            jdbc.update("INSERT INTO book (id, quantity) VALUES (1, 10)");
+            InventoryCounters counters = new InventoryCounters(jdbc,
+                    new TransactionTemplate(new DataSourceTransactionManager(database)), eventPublisher,
+                    catalogGeneration("catalog.snapshot"));
+            counters.onBookChanged(BookChangedEvent.saved(book(1L, 10L)));
+            counters.take(1L, 3L);
+            counters.flush();
+
+            ArgumentCaptor<StockFlushedEvent> captor = ArgumentCaptor.forClass(StockFlushedEvent.class);
+            verify(eventPublisher).publishEvent(captor.capture());
+            assertEquals(Collections.singletonMap(1L, 1L), captor.getValue().getVersions());
+
+            // a PUT with the version read before the flush would write back the stock without the reservation
+            assertEquals(0, jdbc.update("UPDATE book SET quantity = 10, version = version + 1 WHERE id = 1 AND version = 0"));
+            assertEquals(7L, jdbc.queryForObject("SELECT quantity FROM book WHERE id = 1", Long.class));
+            assertEquals(1, jdbc.update("UPDATE book SET quantity = 10, version = version + 1 WHERE id = 1 AND version = 1"));
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    void onBookChangedTest_UpdateKeepsPendingDeltas() {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, 10L)));
+        inventoryCounters.take(1L, 3L);
+        tableQuantity(1L, 20L);
+        inventoryCounters.onBookChanged(BookChangedEvent.updated(book(1L, 20L)));
+        assertEquals(OptionalLong.of(16L), inventoryCounters.take(1L, 1L));
+
+        inventoryCounters.onBookChanged(BookChangedEvent.deleted(1L));
+        inventoryCounters.flush();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void onBookChangedTest_UpdateAfterFlush() {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, 10L)));
+        inventoryCounters.take(1L, 3L);
+        inventoryCounters.flush();
+        inventoryCounters.take(1L, 2L);
+        tableQuantity(1L, 20L);
+        inventoryCounters.onBookChanged(BookChangedEvent.updated(book(1L, 20L)));
+        assertEquals(OptionalLong.of(17L), inventoryCounters.take(1L, 1L));
+    }
+
+    @Test
+    void onBookChangedTest_FlushBetweenUpdateAndEvent() {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, 10L)));
+        inventoryCounters.take(1L, 3L);
+        // the PUT wrote 20, then the flush added its -3 before the event of the PUT came
+        inventoryCounters.flush();
+        tableQuantity(1L, 17L);
+        inventoryCounters.onBookChanged(BookChangedEvent.updated(book(1L, 20L)));
+        assertEquals(OptionalLong.of(16L), inventoryCounters.take(1L, 1L));
+
+        inventoryCounters.flush();
+        ArgumentCaptor<StockFlushedEvent> captor = ArgumentCaptor.forClass(StockFlushedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(captor.capture());
+        assertEquals(Collections.singletonMap(1L, 16L), captor.getValue().getStocks());
+    }
+
+    @Test
+    void onBookChangedTest_UpdateKeepsConcurrentReservations() throws InterruptedException {
+        inventoryCounters.onBookChanged(BookChangedEvent.saved(book(1L, 1000L)));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 500; i++) {
+            executor.execute(() -> inventoryCounters.take(1L, 1L));
+        }
+        tableQuantity(1L, 2000L);
+        inventoryCounters.onBookChanged(BookChangedEvent.updated(book(1L, 2000L)));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(OptionalLong.of(1499L), inventoryCounters.take(1L, 1L));
+    }
+
+    @Test
+    void flushTest_WithoutSnapshotFileKeepsGeneration() {
+        InventoryCounters counters = new InventoryCounters(jdbcTemplate, new TransactionTemplate(transactionManager),
+                eventPublisher, catalogGeneration(""));
+        counters.onBookChanged(BookChangedEvent.saved(book(1L, 10L)));
+        counters.take(1L, 3L);
+        counters.flush();
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        verify(jdbcTemplate, never()).update(BookGenerationRepositoryImpl.INCREMENT_GENERATION);
+    }
+
+    private static CatalogGeneration catalogGeneration(String snapshotFile) {
+        return new CatalogGeneration(mock(BookRepository.class), snapshotFile);
+    }
+
+    private void tableQuantity(Long id, Long quantity) {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(id)))
+                .thenReturn(Collections.singletonList(quantity));
+    }
+
+    private static Book book(Long id, Long quantity) {
+        Book book = new Book();
+        book.setId(id);
+        book.setQuantity(quantity);
+        return book;
+    }
+}
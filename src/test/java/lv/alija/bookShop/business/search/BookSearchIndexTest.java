@@ -0,0 +1,111 @@
+package lv.alija.bookShop.business.search;
+
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookSearchIndexTest {
+
+    @InjectMocks
+    BookSearchIndex bookSearchIndex;
+
+    @Mock
+    BookRepository bookRepository;
+
+    @BeforeEach
+    void init() {
+        bookSearchIndex.onBookChanged(BookChangedEvent.saved(book(1L, "The Old Man and the Sea", "Ernest Hemingway", "Novel")));
+        bookSearchIndex.onBookChanged(BookChangedEvent.saved(book(2L, "Sea of Tranquility", "Emily St. John Mandel", "Science fiction")));
+        bookSearchIndex.onBookChanged(BookChangedEvent.saved(book(3L, "Novel Ideas", "Seamus Heaney", "Poetry")));
+    }
+
+    @Test
+    void searchTest_RanksWholeWordsAndTitlesFirst() {
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(bookSearchIndex.search("sea", 10)));
+        assertEquals(Arrays.asList(3L, 1L), ids(bookSearchIndex.search("NOVEL", 10)));
+    }
+
+    @Test
+    void searchTest_EveryTokenShouldMatch() {
+        assertEquals(Collections.singletonList(1L), ids(bookSearchIndex.search("hem sea", 10)));
+        assertTrue(bookSearchIndex.search("hem poetry", 10).isEmpty());
+        assertTrue(bookSearchIndex.search(" -- ", 10).isEmpty());
+    }
+
+    @Test
+    void searchTest_Limit() {
+        assertEquals(Collections.singletonList(1L), ids(bookSearchIndex.search("se", 1)));
+        assertEquals(Arrays.asList(1L, 2L), ids(bookSearchIndex.search("sea", 2)));
+        assertTrue(bookSearchIndex.search("sea", 0).isEmpty());
+    }
+
+    @Test
+    void onBookChangedTest_UpdateAndDelete() {
+        bookSearchIndex.onBookChanged(BookChangedEvent.updated(book(1L, "For Whom the Bell Tolls", "Ernest Hemingway", "War")));
+        assertEquals(Arrays.asList(2L, 3L), ids(bookSearchIndex.search("sea", 10)));
+        assertEquals(Collections.singletonList(1L), ids(bookSearchIndex.search("bell", 10)));
+
+        bookSearchIndex.onBookChanged(BookChangedEvent.deleted(1L));
+        assertTrue(bookSearchIndex.search("hemingway", 10).isEmpty());
+        assertFalse(bookSearchIndex.tokens().contains("bell"));
+        assertEquals(2, bookSearchIndex.size());
+    }
+
+    @Test
+    void loadTest_ReplacesBooksWithTheTable() {
+        Book loaded = book(4L, "Loaded", "Author", "Genre");
+        when(bookRepository.findAllBooks()).thenReturn(Arrays.asList(
+                book(1L, "The Old Man and the Sea", "Ernest Hemingway", "Novel"), loaded));
+        bookSearchIndex.load();
+        assertEquals(Collections.singletonList(1L), ids(bookSearchIndex.search("sea", 10)));
+        assertEquals(Collections.singletonList(4L), ids(bookSearchIndex.search("load", 10)));
+        assertFalse(bookSearchIndex.tokens().contains("tranquility"));
+        assertEquals(2, bookSearchIndex.size());
+    }
+
+    @Test
+    void loadTest_DeleteDuringTheLoadIsAppliedAfterIt() throws InterruptedException {
+        Thread delete = new Thread(() -> bookSearchIndex.onBookChanged(BookChangedEvent.deleted(4L)));
+        when(bookRepository.findAllBooks()).thenAnswer(invocation -> {
+            delete.start();
+            delete.join(200);
+            assertTrue(delete.isAlive());
+            return Collections.singletonList(book(4L, "Loaded", "Author", "Genre"));
+        });
+        bookSearchIndex.load();
+        delete.join(5000);
+        assertFalse(delete.isAlive());
+        assertTrue(bookSearchIndex.search("load", 10).isEmpty());
+        assertEquals(0, bookSearchIndex.size());
+    }
+
+    private static List<Long> ids(List<Book> books) {
+        return books.stream().map(Book::getId).collect(Collectors.toList());
+    }
+
+    private static Book book(Long id, String title, String author, String genre) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setGenre(genre);
+        return book;
+    }
+}
@@ -1,32 +1,62 @@
 package lv.alija.bookShop.business.service;
 
+import lv.alija.bookShop.business.catalog.CatalogSnapshotService;
+import lv.alija.bookShop.business.event.BookChangedEvent;
 import lv.alija.bookShop.business.mapper.BookMapper;
 import lv.alija.bookShop.business.repository.BookRepository;
 import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.business.search.BookSearchIndex;
 import lv.alija.bookShop.business.service.impl.BookServiceImpl;
+import lv.alija.bookShop.caching.BookCatalogCache;
+import lv.alija.bookShop.caching.BookReadCoalescer;
 import lv.alija.bookShop.exception.BookControllerException;
 import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.BookBatchResult;
+import lv.alija.bookShop.model.BookFilter;
+import lv.alija.bookShop.model.BookSlice;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
-import org.mockito.MockitoAnnotations;
+import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 
+import javax.validation.Validator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 @AutoConfigureMockMvc
@@ -41,16 +71,26 @@ class BookServiceTest {
     @Spy
     BookMapper bookMapper;
 
+    @Mock
+    Validator validator;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    CatalogSnapshotService catalogSnapshotService;
+
+    @Mock
+    BookSearchIndex bookSearchIndex;
+
+    @Spy
+    BookCatalogCache bookCatalogCache = new BookCatalogCache(new ConcurrentMapCacheManager(), new BookReadCoalescer());
+
     private Book book;
     private BookDAO bookDAO;
     private List<Book> bookList;
     private List<BookDAO> bookDAOList;
 
-    @BeforeEach
-    public void setUp() {
-        MockitoAnnotations.openMocks(this);
-    }
-
     @BeforeEach
     void init() {
         bookDAO = createBookDAO();
@@ -61,25 +101,97 @@ class BookServiceTest {
 
     @Test
     void findAllBooks() {
-        when(bookRepository.findAll()).thenReturn(bookDAOList);
-        when(bookMapper.bookDAOToBook(bookDAO)).thenReturn(book);
+        when(bookRepository.findAllBooks()).thenReturn(bookList);
         List<Book> books = bookService.findAllBooks();
         assertEquals(2, books.size());
-        verify(bookRepository, times(1)).findAll();
+        verify(bookRepository, times(1)).findAllBooks();
+        verify(bookMapper, times(0)).bookDAOToBook(any());
     }
 
     @Test
     void findAllBooks_EmptyList_InvalidTest(){
-       when(bookRepository.findAll()).thenReturn(Collections.emptyList())
+       when(bookRepository.findAllBooks()).thenReturn(Collections.emptyList())
                .thenThrow(new BookControllerException(HttpStatus.NOT_FOUND, "Book list is empty"));
        assertThrows(BookControllerException.class, () -> bookService.findAllBooks());
-       verify(bookRepository, times(1)).findAll();
+       verify(bookRepository, times(1)).findAllBooks();
+    }
+
+    @Test
+    void findBookSliceAfterIdTest() {
+        Pageable pageable = PageRequest.of(0, 2, Sort.by("id"));
+        when(bookRepository.findByIdGreaterThan(0L, pageable))
+                .thenReturn(new SliceImpl<>(bookList, pageable, true));
+        BookSlice slice = bookService.findBookSlice(0L, 0, 2);
+        assertEquals(2, slice.getContent().size());
+        assertTrue(slice.isHasNext());
+        assertEquals(book.getId(), slice.getNext());
+        verify(bookRepository, times(0)).findAll();
+    }
+
+    @Test
+    void findBookSlice_LastPage_Test() {
+        Pageable pageable = PageRequest.of(1, 2, Sort.by("id"));
+        when(bookRepository.findAllBy(pageable)).thenReturn(new SliceImpl<>(bookList, pageable, false));
+        BookSlice slice = bookService.findBookSlice(null, 1, 2);
+        assertFalse(slice.isHasNext());
+        assertNull(slice.getNext());
+    }
+
+    @Test
+    void findBookFieldsTest() {
+        List<String> fields = Arrays.asList("id", "title", "price");
+        Map<String, Object> fieldsOfBook = new LinkedHashMap<>();
+        fieldsOfBook.put("id", 1L);
+        when(bookRepository.findAllFields(fields)).thenReturn(Collections.singletonList(fieldsOfBook));
+        assertEquals(Collections.singletonList(fieldsOfBook), bookService.findBookFields(fields));
+    }
+
+    @Test
+    void findBookFields_UnknownOrRepeatedField_InvalidTest() {
+        assertThrows(BookControllerException.class,
+                () -> bookService.findBookFields(Arrays.asList("id", "isbnNormalized")));
+        assertThrows(BookControllerException.class,
+                () -> bookService.findBookFields(Arrays.asList("id", "id")));
+        verify(bookRepository, times(0)).findAllFields(any());
+    }
+
+    @Test
+    void findBookSlice_SizeTooBig_InvalidTest() {
+        assertThrows(BookControllerException.class,
+                () -> bookService.findBookSlice(null, 0, BookServiceImpl.MAX_PAGE_SIZE + 1));
+        verify(bookRepository, times(0)).findAllBy(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void filterBooksTest() {
+        Pageable pageable = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "price").and(Sort.by("id")));
+        when(bookRepository.findBookSlice(any(Specification.class), eq(pageable)))
+                .thenReturn(new SliceImpl<>(bookList, pageable, true));
+        BookFilter filter = new BookFilter("Genre1", null, 2000L, 2022L, null, 10L, true);
+        BookSlice slice = bookService.filterBooks(filter, "price,desc", 0, 2);
+        assertEquals(2, slice.getContent().size());
+        assertTrue(slice.isHasNext());
+        assertNull(slice.getNext());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void filterBooksTest_InvalidTest() {
+        BookFilter filter = new BookFilter();
+        assertThrows(BookControllerException.class, () -> bookService.filterBooks(filter, "isbn", 0, 2));
+        assertThrows(BookControllerException.class, () -> bookService.filterBooks(filter, "price,up", 0, 2));
+        assertThrows(BookControllerException.class,
+                () -> bookService.filterBooks(filter, "id", Integer.MAX_VALUE / 2, BookServiceImpl.MAX_PAGE_SIZE));
+        filter.setMinPrice(5L);
+        filter.setMaxPrice(4L);
+        assertThrows(BookControllerException.class, () -> bookService.filterBooks(filter, "id", 0, 2));
+        verify(bookRepository, times(0)).findBookSlice(any(Specification.class), any(Pageable.class));
     }
 
     @Test
     void findBookListByAuthorTest() {
-        when(bookRepository.findByAuthor("Author1")).thenReturn(bookDAOList);
-        when(bookMapper.bookDAOToBook(bookDAO)).thenReturn(book);
+        when(bookRepository.findByAuthor("Author1")).thenReturn(bookList);
         List<Book> books = bookService.findByAuthor("Author1");
         assertEquals(2, books.size());
         verify(bookRepository, times(1)).findByAuthor("Author1");
@@ -95,8 +207,7 @@ class BookServiceTest {
 
     @Test
     void findBookByIdTest() {
-        when(bookRepository.findById(anyLong())).thenReturn(Optional.of(bookDAO));
-        when(bookMapper.bookDAOToBook(bookDAO)).thenReturn(book);
+        when(bookRepository.findBookById(anyLong())).thenReturn(Optional.of(book));
         Optional<Book> bookById = bookService.findBookById(book.getId());
         assertEquals(book.getId(), bookById.get().getId());
         assertEquals(book.getAuthor(), bookById.get().getAuthor());
@@ -106,37 +217,56 @@ class BookServiceTest {
         assertEquals(book.getIsbn(), bookById.get().getIsbn());
         assertEquals(book.getQuantity(), bookById.get().getQuantity());
         assertEquals(book.getPrice(), bookById.get().getPrice());
-        verify(bookRepository, times(1)).findById(anyLong());
+        verify(bookRepository, times(1)).findBookById(anyLong());
+        verify(bookRepository, times(0)).findById(anyLong());
+    }
+
+    @Test
+    void findBookByIdFromSnapshotTest() {
+        when(catalogSnapshotService.isLoaded()).thenReturn(true);
+        when(catalogSnapshotService.findById(1L)).thenReturn(Optional.of(book));
+        Optional<Book> bookById = bookService.findBookById(1L);
+        assertEquals(book, bookById.get());
+        verify(bookRepository, times(0)).findBookById(anyLong());
+    }
+
+    @Test
+    void findBookListByAuthorFromSnapshot_EmptyList_InvalidTest() {
+        when(catalogSnapshotService.isLoaded()).thenReturn(true);
+        when(catalogSnapshotService.findByAuthor("Author2")).thenReturn(Collections.emptyList());
+        assertThrows(BookControllerException.class, () -> bookService.findByAuthor("Author2"));
+        verify(bookRepository, times(0)).findByAuthor("Author2");
     }
 
     @Test
     void findBookById_idNegativeOrNull_InvalidTest() {
         assertThrows(BookControllerException.class, () -> bookService.findBookById(-1L));
-        verify(bookRepository, times(0)).findById(-1L);
+        verify(bookRepository, times(0)).findBookById(-1L);
     }
 
     @Test
     void findBookById_idPositiveButNotFound_InvalidTest() {
         assertThrows(BookControllerException.class, () -> bookService.findBookById(5L));
-        verify(bookRepository, times(1)).findById(5L);
+        verify(bookRepository, times(1)).findBookById(5L);
     }
 
     @Test
     void saveBookTest() throws Exception {
-        when(bookRepository.save(bookDAO)).thenReturn(bookDAO);
+        when(bookRepository.saveAndFlush(bookDAO)).thenReturn(bookDAO);
         when(bookMapper.bookDAOToBook(bookDAO)).thenReturn(book);
         when(bookMapper.bookToBookDAO(book)).thenReturn(bookDAO);
         Book bookSaved = bookService.saveBook(book);
         assertEquals(book, bookSaved);
-        verify(bookRepository, times(1)).save(bookDAO);
+        verify(bookRepository, times(1)).saveAndFlush(bookDAO);
+        verify(eventPublisher, times(1)).publishEvent(any(BookChangedEvent.class));
     }
 
     @Test
     void saveBookTest_InvalidTest() {
-        when(bookRepository.save(bookDAO)).thenThrow(new IllegalArgumentException());
+        when(bookRepository.saveAndFlush(bookDAO)).thenThrow(new IllegalArgumentException());
         when(bookMapper.bookToBookDAO(book)).thenReturn(bookDAO);
         assertThrows(IllegalArgumentException.class, () -> bookService.saveBook(book));
-        verify(bookRepository, times(1)).save(bookDAO);
+        verify(bookRepository, times(1)).saveAndFlush(bookDAO);
     }
 
     @Test
@@ -150,34 +280,154 @@ class BookServiceTest {
         bookSaved.setIsbn("000-00-00-0001");
         bookSaved.setQuantity(2L);
         bookSaved.setPrice(4L);
-        when(bookRepository.findAll()).thenReturn(bookDAOList);
+        when(bookRepository.existsByIsbnIgnoreCase(bookSaved.getIsbn())).thenReturn(true);
         assertThrows(BookControllerException.class, () -> bookService.saveBook(bookSaved));
-        verify(bookRepository, times(0)).save(bookDAO);
+        verify(bookRepository, times(0)).saveAndFlush(bookDAO);
+        verify(bookRepository, times(0)).findAll();
+    }
+
+    @Test
+    void saveBookTest_UniqueIndexViolation_InvalidTest() {
+        when(bookRepository.saveAndFlush(bookDAO)).thenThrow(new DataIntegrityViolationException("ux_book_isbn_normalized"));
+        when(bookMapper.bookToBookDAO(book)).thenReturn(bookDAO);
+        BookControllerException exception = assertThrows(BookControllerException.class, () -> bookService.saveBook(book));
+        assertEquals(HttpStatus.CONFLICT, exception.getErrorCode());
+    }
+
+    @Test
+    void saveBookTest_OtherIntegrityViolation_InvalidTest() {
+        when(bookRepository.saveAndFlush(bookDAO)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Numeric value out of range", null, null)));
+        when(bookMapper.bookToBookDAO(book)).thenReturn(bookDAO);
+        BookControllerException exception = assertThrows(BookControllerException.class, () -> bookService.saveBook(book));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getErrorCode());
+    }
+
+    @Test
+    void updateBookTest_UniqueIndexViolation_InvalidTest() {
+        when(bookRepository.updateBook(bookDAO)).thenThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Unique index or primary key violation", null,
+                        "PUBLIC.UX_BOOK_ISBN_NORMALIZED ON PUBLIC.BOOK(ISBN_NORMALIZED) VALUES 1")));
+        when(bookMapper.bookToBookDAO(book)).thenReturn(bookDAO);
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> bookService.updateBook(book, 1L));
+        assertEquals(HttpStatus.CONFLICT, exception.getErrorCode());
+    }
+
+    @Test
+    void saveBooksTest() {
+        Book existingBook = createBook();
+        Book newBook = createBook();
+        newBook.setIsbn("000-00-00-0002");
+        BookDAO newBookDAO = createBookDAO();
+        newBookDAO.setIsbn("000-00-00-0002");
+        when(bookRepository.findExistingNormalizedIsbns(any()))
+                .thenReturn(Collections.singletonList("000-00-00-0001"));
+        when(bookMapper.bookToBookDAO(newBook)).thenReturn(newBookDAO);
+        when(bookRepository.saveAllAndFlush(Collections.singletonList(newBookDAO)))
+                .thenReturn(Collections.singletonList(newBookDAO));
+        when(bookMapper.bookDAOToBook(newBookDAO)).thenReturn(newBook);
+        List<BookBatchResult> results = bookService.saveBooks(Arrays.asList(existingBook, newBook));
+        assertEquals(HttpStatus.CONFLICT.value(), results.get(0).getStatus());
+        assertEquals(HttpStatus.CREATED.value(), results.get(1).getStatus());
+        assertEquals(newBook, results.get(1).getBook());
+        assertNull(newBookDAO.getId());
+        verify(bookRepository, times(1)).findExistingNormalizedIsbns(any());
+        verify(bookRepository, times(0)).findAll();
+    }
+
+    @Test
+    void saveBooksTest_RepeatedIsbnInBatch_InvalidTest() {
+        Book repeatedBook = createBook();
+        repeatedBook.setIsbn(" 000-00-00-0001 ");
+        when(bookRepository.findExistingNormalizedIsbns(any()))
+                .thenReturn(Collections.singletonList("000-00-00-0001"));
+        List<BookBatchResult> results = bookService.saveBooks(Arrays.asList(book, repeatedBook));
+        assertEquals(HttpStatus.CONFLICT.value(), results.get(0).getStatus());
+        assertEquals(HttpStatus.CONFLICT.value(), results.get(1).getStatus());
+        verify(bookRepository, times(0)).saveAllAndFlush(any());
+    }
+
+    @Test
+    void saveBooksTest_EmptyBatch_InvalidTest() {
+        assertThrows(BookControllerException.class, () -> bookService.saveBooks(Collections.emptyList()));
+        verify(bookRepository, times(0)).findExistingNormalizedIsbns(any());
     }
 
     @Test
     void deleteBookByIdTest() {
-        when(bookRepository.findById(1L)).thenReturn(Optional.of(bookDAO));
-        when(bookMapper.bookDAOToBook(bookDAO)).thenReturn(book);
-        Optional<Book> bookById = bookService.findBookById(book.getId());
-        bookService.deleteBookById(bookById.get().getId());
-        verify(bookRepository, times(1)).deleteById(bookById.get().getId());
+        when(bookRepository.deleteBookById(1L)).thenReturn(1);
+        bookService.deleteBookById(1L);
+        verify(bookRepository, times(1)).deleteBookById(1L);
+        verify(bookRepository, times(0)).findById(anyLong());
+        ArgumentCaptor<BookChangedEvent> event = ArgumentCaptor.forClass(BookChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(BookChangedEvent.Type.DELETED, event.getValue().getType());
+        assertEquals(1L, event.getValue().getId());
+        assertNull(event.getValue().getBook());
+    }
+
+    @Test
+    void deleteBookById_NotFound_InvalidTest() {
+        when(bookRepository.deleteBookById(63L)).thenReturn(0);
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> bookService.deleteBookById(63L));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getErrorCode());
+        verify(eventPublisher, times(0)).publishEvent(any());
     }
 
     @Test
     void updateBookTest() throws Exception {
-        when(bookRepository.save(bookDAO)).thenReturn(bookDAO);
+        when(bookRepository.updateBook(bookDAO)).thenReturn(1);
+        when(bookRepository.findVersionById(1L)).thenReturn(Optional.of(3L));
         when(bookMapper.bookDAOToBook(bookDAO)).thenReturn(book);
         when(bookMapper.bookToBookDAO(book)).thenReturn(bookDAO);
         Book bookSaved = bookService.updateBook(book, 1L);
         assertEquals(book, bookSaved);
-        verify(bookRepository, times(1)).save(bookDAO);
+        assertEquals(3L, bookSaved.getVersion());
+        verify(bookRepository, times(1)).updateBook(bookDAO);
+        verify(bookRepository, times(0)).saveAndFlush(bookDAO);
+    }
+
+    @Test
+    void updateBookTest_WithVersion() throws Exception {
+        bookDAO.setVersion(2L);
+        when(bookRepository.updateBookIfVersion(bookDAO)).thenReturn(1);
+        when(bookMapper.bookDAOToBook(bookDAO)).thenReturn(book);
+        when(bookMapper.bookToBookDAO(book)).thenReturn(bookDAO);
+        Book bookSaved = bookService.updateBook(book, 1L);
+        assertEquals(3L, bookSaved.getVersion());
+        verify(bookRepository, times(0)).findVersionById(anyLong());
+    }
+
+    @Test
+    void updateBookTest_StaleVersion_InvalidTest() {
+        bookDAO.setVersion(2L);
+        when(bookRepository.updateBookIfVersion(bookDAO)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+        when(bookMapper.bookToBookDAO(book)).thenReturn(bookDAO);
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> bookService.updateBook(book, 1L));
+        assertEquals(HttpStatus.CONFLICT, exception.getErrorCode());
+        verify(eventPublisher, times(0)).publishEvent(any());
+    }
+
+    @Test
+    void updateBookTest_NotFound_InvalidTest() {
+        when(bookRepository.updateBook(bookDAO)).thenReturn(0);
+        when(bookMapper.bookToBookDAO(book)).thenReturn(bookDAO);
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> bookService.updateBook(book, 1L));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getErrorCode());
     }
 
     @Test
     void updateBookTest_WithIncorrectId_InvalidTest() {
-        assertThrows(BookControllerException.class, () -> bookService.updateBook(book, 3L));
-        verify(bookRepository, times(0)).save(bookDAO);
+        when(bookRepository.existsById(3L)).thenReturn(true);
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> bookService.updateBook(book, 3L));
+        assertEquals(HttpStatus.NOT_ACCEPTABLE, exception.getErrorCode());
+        verify(bookRepository, times(0)).updateBook(any());
     }
 
     private List<BookDAO> createBookDAOList() {
@@ -189,6 +439,23 @@ class BookServiceTest {
         return listDAO;
     }
 
+    @Test
+    void searchBooksTest() {
+        when(bookSearchIndex.search("tit", 20)).thenReturn(bookList);
+        List<Book> found = bookService.searchBooks("tit", 20);
+        assertSame(bookList, found);
+        assertEquals(2, found.size());
+        verify(bookSearchIndex, times(1)).search("tit", 20);
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void searchBooksTest_Blank_InvalidTest() {
+        assertThrows(BookControllerException.class, () -> bookService.searchBooks(" ", 20));
+        assertThrows(BookControllerException.class, () -> bookService.searchBooks("tit", 0));
+        verify(bookSearchIndex, times(0)).search(any(), anyInt());
+    }
+
     private BookDAO createBookDAO() {
         BookDAO bookDAO = new BookDAO();
         bookDAO.setId(1L);
@@ -0,0 +1,111 @@
+package lv.alija.bookShop.business.service;
+
+import lv.alija.bookShop.business.catalog.CatalogSnapshotService;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import lv.alija.bookShop.business.event.StockFlushedEvent;
+import lv.alija.bookShop.business.inventory.InventoryCounters;
+import lv.alija.bookShop.business.mapper.BookMapper;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.business.service.impl.InMemoryInventoryServiceImpl;
+import lv.alija.bookShop.exception.BookControllerException;
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.Reservation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryInventoryServiceTest {
+
+    @InjectMocks
+    InMemoryInventoryServiceImpl inventoryService;
+
+    @Mock
+    InventoryCounters inventoryCounters;
+
+    @Mock
+    CatalogSnapshotService catalogSnapshotService;
+
+    @Mock
+    BookRepository bookRepository;
+
+    @Mock
+    BookMapper bookMapper;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void releaseTest_OverflowingStock_InvalidTest() {
+        when(inventoryCounters.give(1L, Long.MAX_VALUE)).thenThrow(ArithmeticException.class);
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> inventoryService.release(1L, Long.MAX_VALUE));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getErrorCode());
+    }
+
+    @Test
+    void reserveAllTest_OverflowingCart_InvalidTest() {
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> inventoryService.reserveAll(Arrays.asList(
+                        new Reservation(1L, Long.MAX_VALUE), new Reservation(1L, 1L))));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getErrorCode());
+        verify(inventoryCounters, never()).take(any(), anyLong());
+    }
+
+    @Test
+    void onStockFlushedTest_PublishesOneChangeOfAllBooks() {
+        when(catalogSnapshotService.isLoaded()).thenReturn(true);
+        when(catalogSnapshotService.findById(1L)).thenReturn(Optional.of(book(1L, 10L)));
+        when(catalogSnapshotService.findById(2L)).thenReturn(Optional.of(book(2L, 10L)));
+        when(catalogSnapshotService.findById(3L)).thenReturn(Optional.empty());
+        when(bookMapper.copyBook(any(Book.class))).thenAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            return book(book.getId(), book.getQuantity());
+        });
+        Map<Long, Long> stocks = new LinkedHashMap<>();
+        stocks.put(1L, 7L);
+        stocks.put(2L, 9L);
+        stocks.put(3L, 1L);
+        Map<Long, Long> versions = new LinkedHashMap<>();
+        versions.put(1L, 4L);
+        versions.put(2L, 1L);
+        versions.put(3L, 1L);
+
+        inventoryService.onStockFlushed(new StockFlushedEvent(stocks, versions));
+
+        ArgumentCaptor<StockChangedEvent> captor = ArgumentCaptor.forClass(StockChangedEvent.class);
+        verify(eventPublisher).publishEvent(captor.capture());
+        assertEquals(Arrays.asList(book(1L, 7L, 4L), book(2L, 9L, 1L)), captor.getValue().getBooks());
+    }
+
+    private static Book book(Long id, Long quantity) {
+        Book book = new Book();
+        book.setId(id);
+        book.setQuantity(quantity);
+        return book;
+    }
+
+    private static Book book(Long id, Long quantity, Long version) {
+        Book book = book(id, quantity);
+        book.setVersion(version);
+        return book;
+    }
+}
@@ -0,0 +1,153 @@
+package lv.alija.bookShop.business.service;
+
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.mapper.BookMapper;
+import lv.alija.bookShop.business.repository.BookRepository;
+import lv.alija.bookShop.business.repository.model.BookDAO;
+import lv.alija.bookShop.business.service.impl.InventoryServiceImpl;
+import lv.alija.bookShop.exception.BookControllerException;
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.Reservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryServiceTest {
+
+    @InjectMocks
+    InventoryServiceImpl inventoryService;
+
+    @Mock
+    BookRepository bookRepository;
+
+    @Mock
+    BookMapper bookMapper;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    private Book book;
+    private BookDAO bookDAO;
+
+    @BeforeEach
+    void init() {
+        book = new Book();
+        book.setId(1L);
+        book.setQuantity(1L);
+        bookDAO = new BookDAO();
+        bookDAO.setId(1L);
+        bookDAO.setQuantity(1L);
+    }
+
+    @Test
+    void reserveTest() {
+        when(bookRepository.reserveQuantity(1L, 1L)).thenReturn(1);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(bookDAO));
+        when(bookMapper.bookDAOToBook(bookDAO)).thenReturn(book);
+        Book reserved = inventoryService.reserve(1L, 1L);
+        assertEquals(1L, reserved.getQuantity());
+        verify(eventPublisher, times(1)).publishEvent(any(BookChangedEvent.class));
+    }
+
+    @Test
+    void reserveTest_NotEnoughInStock_InvalidTest() {
+        when(bookRepository.reserveQuantity(1L, 5L)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> inventoryService.reserve(1L, 5L));
+        assertEquals(HttpStatus.CONFLICT, exception.getErrorCode());
+        verify(eventPublisher, times(0)).publishEvent(any());
+    }
+
+    @Test
+    void reserveTest_NotFound_InvalidTest() {
+        when(bookRepository.reserveQuantity(63L, 1L)).thenReturn(0);
+        when(bookRepository.existsById(63L)).thenReturn(false);
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> inventoryService.reserve(63L, 1L));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    void reserveTest_NegativeQuantity_InvalidTest() {
+        assertThrows(BookControllerException.class, () -> inventoryService.reserve(1L, -1L));
+        verify(bookRepository, times(0)).reserveQuantity(anyLong(), anyLong());
+    }
+
+    @Test
+    void releaseTest_NotFound_InvalidTest() {
+        when(bookRepository.releaseQuantity(63L, 1L)).thenReturn(0);
+        assertThrows(BookControllerException.class, () -> inventoryService.release(63L, 1L));
+    }
+
+    @Test
+    void releaseTest_OverflowingStock_InvalidTest() {
+        when(bookRepository.releaseQuantity(1L, Long.MAX_VALUE)).thenReturn(0);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> inventoryService.release(1L, Long.MAX_VALUE));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getErrorCode());
+        verify(eventPublisher, times(0)).publishEvent(any());
+    }
+
+    @Test
+    void reserveAllTest_InIdOrder() {
+        when(bookRepository.reserveQuantity(anyLong(), anyLong())).thenReturn(1);
+        when(bookRepository.findAllById(Arrays.asList(1L, 2L))).thenReturn(Collections.singletonList(bookDAO));
+        when(bookMapper.bookDAOToBook(bookDAO)).thenReturn(book);
+        List<Book> books = inventoryService.reserveAll(Arrays.asList(
+                new Reservation(2L, 1L), new Reservation(1L, 1L), new Reservation(2L, 2L)));
+        assertEquals(1, books.size());
+        InOrder order = inOrder(bookRepository);
+        order.verify(bookRepository).reserveQuantity(1L, 1L);
+        order.verify(bookRepository).reserveQuantity(2L, 3L);
+    }
+
+    @Test
+    void reserveAllTest_NullReservation_InvalidTest() {
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> inventoryService.reserveAll(Arrays.asList(new Reservation(1L, 1L), null)));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getErrorCode());
+        verify(bookRepository, times(0)).reserveQuantity(anyLong(), anyLong());
+    }
+
+    @Test
+    void reserveAllTest_OverflowingCart_InvalidTest() {
+        BookControllerException exception = assertThrows(BookControllerException.class,
+                () -> inventoryService.reserveAll(Arrays.asList(
+                        new Reservation(1L, Long.MAX_VALUE), new Reservation(1L, Long.MAX_VALUE))));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getErrorCode());
+        verify(bookRepository, times(0)).reserveQuantity(anyLong(), anyLong());
+    }
+
+    @Test
+    void reserveAllTest_OneBookMissing_InvalidTest() {
+        when(bookRepository.reserveQuantity(1L, 1L)).thenReturn(1);
+        when(bookRepository.reserveQuantity(2L, 1L)).thenReturn(0);
+        when(bookRepository.existsById(2L)).thenReturn(true);
+        assertThrows(BookControllerException.class, () -> inventoryService.reserveAll(Arrays.asList(
+                new Reservation(1L, 1L), new Reservation(2L, 1L))));
+        verify(eventPublisher, times(0)).publishEvent(any());
+    }
+}
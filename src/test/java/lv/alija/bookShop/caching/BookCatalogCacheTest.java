@@ -0,0 +1,225 @@
+package lv.alija.bookShop.caching;
+
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.business.event.StockChangedEvent;
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BookCatalogCacheTest {
+
+    private CacheManager cacheManager;
+
+    private BookCatalogCache bookCatalogCache;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager = new ConcurrentMapCacheManager(
+                CacheNames.BOOK_LIST, CacheNames.BOOK_BY_ID, CacheNames.BOOKS_BY_AUTHOR);
+        bookCatalogCache = new BookCatalogCache(cacheManager, new BookReadCoalescer());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void savedBookIsInsertedInOrderTest() {
+        putList(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY, createBook(1L, "Author1"), createBook(3L, "Author1"));
+        putList(CacheNames.BOOKS_BY_AUTHOR, "author1", createBook(1L, "Author1"), createBook(3L, "Author1"));
+
+        bookCatalogCache.onBookChanged(BookChangedEvent.saved(createBook(2L, "Author1")));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY));
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(CacheNames.BOOKS_BY_AUTHOR, "author1"));
+        assertEquals(2L, cacheManager.getCache(CacheNames.BOOK_BY_ID).get(2L, Book.class).getId());
+    }
+
+    @Test
+    void updatedBookMovesBetweenAuthorsTest() {
+        Book previous = createBook(1L, "Author1");
+        putList(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY, previous, createBook(2L, "Author2"));
+        putList(CacheNames.BOOKS_BY_AUTHOR, "author1", previous);
+        putList(CacheNames.BOOKS_BY_AUTHOR, "author2", createBook(2L, "Author2"));
+
+        bookCatalogCache.onBookChanged(BookChangedEvent.updated(createBook(1L, "Author2")));
+
+        assertNull(cacheManager.getCache(CacheNames.BOOKS_BY_AUTHOR).get("author1"));
+        assertEquals(Arrays.asList(1L, 2L), ids(CacheNames.BOOKS_BY_AUTHOR, "author2"));
+        assertEquals("Author2", books(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY).get(0).getAuthor());
+    }
+
+    @Test
+    void deletedBookIsRemovedTest() {
+        List<Book> cachedList = new ArrayList<>(Arrays.asList(createBook(1L, "Author1"), createBook(2L, "Author2")));
+        cacheManager.getCache(CacheNames.BOOK_LIST).put(CacheNames.ALL_BOOKS_KEY, cachedList);
+        cacheManager.getCache(CacheNames.BOOK_BY_ID).put(2L, createBook(2L, "Author2"));
+
+        bookCatalogCache.onBookChanged(BookChangedEvent.deleted(2L));
+
+        assertEquals(Collections.singletonList(1L), ids(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY));
+        assertEquals(2, cachedList.size());
+        assertNull(cacheManager.getCache(CacheNames.BOOK_BY_ID).get(2L));
+    }
+
+    @Test
+    void lastDeletedBookEvictsListTest() {
+        putList(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY, createBook(1L, "Author1"));
+
+        bookCatalogCache.onBookChanged(BookChangedEvent.deleted(1L));
+
+        assertNull(cacheManager.getCache(CacheNames.BOOK_LIST).get(CacheNames.ALL_BOOKS_KEY));
+    }
+
+    @Test
+    void stockChangeIsAppliedToEveryListTest() {
+        putList(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY,
+                createBook(1L, "Author1"), createBook(2L, "Author2"), createBook(3L, "Author1"));
+        putList(CacheNames.BOOKS_BY_AUTHOR, "author1", createBook(1L, "Author1"), createBook(3L, "Author1"));
+        putList(CacheNames.BOOKS_BY_AUTHOR, "author2", createBook(2L, "Author2"));
+        Book first = createBook(1L, "Author1");
+        first.setQuantity(7L);
+        Book third = createBook(3L, "Author1");
+        third.setQuantity(9L);
+
+        bookCatalogCache.onStockChanged(new StockChangedEvent(Arrays.asList(first, third)));
+
+        assertEquals(Arrays.asList(7L, 2L, 9L), quantities(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY));
+        assertEquals(Arrays.asList(7L, 9L), quantities(CacheNames.BOOKS_BY_AUTHOR, "author1"));
+        assertEquals(Collections.singletonList(2L), quantities(CacheNames.BOOKS_BY_AUTHOR, "author2"));
+        assertEquals(9L, cacheManager.getCache(CacheNames.BOOK_BY_ID).get(3L, Book.class).getQuantity());
+    }
+
+    @Test
+    void changesOfTransactionAreAppliedOnceAfterCommitTest() {
+        List<Object> puts = new ArrayList<>();
+        cacheManager = new ConcurrentMapCacheManager() {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                return new ConcurrentMapCache(name) {
+                    @Override
+                    public void put(Object key, Object value) {
+                        puts.add(key);
+                        super.put(key, value);
+                    }
+                };
+            }
+        };
+        bookCatalogCache = new BookCatalogCache(cacheManager, new BookReadCoalescer());
+        putList(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY, createBook(1L, "Author1"), createBook(4L, "Author1"));
+        putList(CacheNames.BOOKS_BY_AUTHOR, "author1", createBook(1L, "Author1"), createBook(4L, "Author1"));
+        puts.clear();
+
+        TransactionSynchronizationManager.initSynchronization();
+        bookCatalogCache.onBookChanged(BookChangedEvent.saved(createBook(3L, "Author1")));
+        bookCatalogCache.onBookChanged(BookChangedEvent.saved(createBook(2L, "Author1")));
+        bookCatalogCache.onBookChanged(BookChangedEvent.deleted(4L));
+        assertEquals(Arrays.asList(1L, 4L), ids(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY));
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY));
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(CacheNames.BOOKS_BY_AUTHOR, "author1"));
+        assertEquals(1, puts.stream().filter(CacheNames.ALL_BOOKS_KEY::equals).count());
+        assertEquals(1, puts.stream().filter("author1"::equals).count());
+    }
+
+    @Test
+    void changesOfRolledBackTransactionAreDroppedTest() {
+        putList(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY, createBook(1L, "Author1"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        bookCatalogCache.onBookChanged(BookChangedEvent.deleted(1L));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(Collections.singletonList(1L), ids(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY));
+        assertFalse(TransactionSynchronizationManager.hasResource(bookCatalogCache));
+    }
+
+    @Test
+    void loadedListIsCachedTest() {
+        List<Book> books = bookCatalogCache.bookList(() -> Arrays.asList(createBook(1L, "Author1")));
+
+        assertEquals(books, bookCatalogCache.bookList(() -> {
+            throw new AssertionError("Cached list should be used");
+        }));
+        assertEquals(Collections.singletonList(1L), ids(CacheNames.BOOK_LIST, CacheNames.ALL_BOOKS_KEY));
+    }
+
+    @Test
+    void listLoadedDuringChangeIsNotCachedTest() {
+        List<Book> books = bookCatalogCache.booksByAuthor("Author1", () -> {
+            bookCatalogCache.onBookChanged(BookChangedEvent.deleted(1L));
+            return Arrays.asList(createBook(1L, "Author1"));
+        });
+
+        assertEquals(1, books.size());
+        assertNull(cacheManager.getCache(CacheNames.BOOKS_BY_AUTHOR).get("author1"));
+    }
+
+    @Test
+    void bookLoadedDuringChangeIsNotCachedTest() {
+        bookCatalogCache.bookById(1L, () -> {
+            bookCatalogCache.onBookChanged(BookChangedEvent.updated(createBook(1L, "Author2")));
+            return Optional.of(createBook(1L, "Author1"));
+        });
+
+        assertEquals("Author2", cacheManager.getCache(CacheNames.BOOK_BY_ID).get(1L, Book.class).getAuthor());
+    }
+
+    private void putList(String cacheName, String key, Book... books) {
+        cacheManager.getCache(cacheName).put(key, new ArrayList<>(Arrays.asList(books)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Book> books(String cacheName, String key) {
+        return (List<Book>) cacheManager.getCache(cacheName).get(key).get();
+    }
+
+    private List<Long> ids(String cacheName, String key) {
+        List<Long> ids = new ArrayList<>();
+        books(cacheName, key).forEach(book -> ids.add(book.getId()));
+        return ids;
+    }
+
+    private List<Long> quantities(String cacheName, String key) {
+        List<Long> quantities = new ArrayList<>();
+        books(cacheName, key).forEach(book -> quantities.add(book.getQuantity()));
+        return quantities;
+    }
+
+    private Book createBook(Long id, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Title" + id);
+        book.setAuthor(author);
+        book.setGenre("Genre1");
+        book.setReleaseYear(2022L);
+        book.setIsbn("000-00-00-000" + id);
+        book.setQuantity(2L);
+        book.setPrice(4L);
+        return book;
+    }
+}
@@ -0,0 +1,90 @@
+package lv.alija.bookShop.caching;
+
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSerializerTest {
+
+    private final BookSerializer bookSerializer = new BookSerializer(getClass().getClassLoader());
+
+    private final BookListSerializer bookListSerializer = new BookListSerializer(getClass().getClassLoader());
+
+    @Test
+    void readsWrittenBookTest() {
+        Book book = createBook(1L, "Title1");
+        ByteBuffer binary = bookSerializer.serialize(book);
+        assertEquals(binary.remaining(), 1 + BookSerializer.encode(book).length);
+        Book read = bookSerializer.read(binary);
+        assertEquals(book, read);
+        assertEquals(book.getVersion(), read.getVersion());
+    }
+
+    @Test
+    void keepsNullsAndNonAsciiTextTest() {
+        Book book = new Book(2L, "Grāmata 📚", null, "Genre", null, "000-00-00-0002", 0L, null, 3L);
+        Book read = bookSerializer.read(bookSerializer.serialize(book));
+        assertEquals("Grāmata 📚", read.getTitle());
+        assertNull(read.getAuthor());
+        assertNull(read.getReleaseYear());
+        assertNull(read.getPrice());
+        assertEquals(0L, read.getQuantity());
+        assertEquals(3L, read.getVersion());
+    }
+
+    @Test
+    void replacesLoneSurrogateTest() {
+        List<Book> books = Arrays.asList(new Book(1L, "Broken \uD83D", "Author\uDC9A", "Genre", 2022L, "000-00-00-0001",
+                1L, 2L, 0L), createBook(2L, "Title2"));
+        List<Book> read = bookListSerializer.read(bookListSerializer.serialize(books));
+        assertEquals("Broken ?", read.get(0).getTitle());
+        assertEquals("Author?", read.get(0).getAuthor());
+        assertEquals(books.get(1), read.get(1));
+    }
+
+    @Test
+    void comparesWithBinaryTest() {
+        Book book = createBook(1L, "Title1");
+        assertTrue(bookSerializer.equals(book, bookSerializer.serialize(book)));
+    }
+
+    @Test
+    void rejectsUnknownFormatTest() {
+        ByteBuffer binary = bookSerializer.serialize(createBook(1L, "Title1"));
+        binary.put(0, (byte) 0);
+        assertThrows(IllegalStateException.class, () -> bookSerializer.read(binary));
+    }
+
+    @Test
+    void readsWrittenBookListTest() {
+        List<Book> books = Arrays.asList(createBook(1L, "Title1"), createBook(2L, "Title2"));
+        assertEquals(books, bookListSerializer.read(bookListSerializer.serialize(books)));
+        assertEquals(Collections.emptyList(), bookListSerializer.read(bookListSerializer.serialize(Collections.emptyList())));
+    }
+
+    @Test
+    void decodesBooksOfListOnDemandTest() {
+        List<Book> books = Arrays.asList(createBook(1L, "Title1"), createBook(2L, "Grāmata 📚"), createBook(5L, "Title5"));
+        SerializedBookList read = (SerializedBookList) bookListSerializer.read(bookListSerializer.serialize(books));
+        assertEquals(3, read.size());
+        assertEquals(1, read.indexOfId(2L));
+        assertEquals(-1, read.indexOfId(3L));
+        assertEquals(books.get(1), read.get(1));
+        assertSame(read.get(1), read.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> read.get(3));
+    }
+
+    private Book createBook(Long id, String title) {
+        return new Book(id, title, "Author" + id, "Genre" + id, 2022L, "000-00-00-000" + id, 2L, 4L, 1L);
+    }
+}
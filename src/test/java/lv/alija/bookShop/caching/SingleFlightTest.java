@@ -0,0 +1,84 @@
+package lv.alija.bookShop.caching;
+
+import lv.alija.bookShop.exception.BookControllerException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallersShareOneLoadTest() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            Future<String> first = executor.submit(() -> singleFlight.load("all", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return "books";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 1; i < CALLERS; i++) {
+                followers.add(executor.submit(() -> singleFlight.load("all", () -> {
+                    loads.incrementAndGet();
+                    return "other books";
+                })));
+            }
+            while (singleFlight.getCoalesced() < CALLERS - 1) {
+                Thread.yield();
+            }
+            release.countDown();
+            assertEquals("books", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("books", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void finishedLoadIsNotReusedTest() {
+        singleFlight.load("all", () -> "old");
+        assertEquals("new", singleFlight.load("all", () -> "new"));
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    @Test
+    void exceptionIsPassedOnAndForgottenTest() {
+        BookControllerException notFound = new BookControllerException(HttpStatus.NOT_FOUND, "Book list is empty");
+        assertThrows(BookControllerException.class, () -> singleFlight.load("all", () -> {
+            throw notFound;
+        }));
+        assertEquals("books", singleFlight.load("all", () -> "books"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
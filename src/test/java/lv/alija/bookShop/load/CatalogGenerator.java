@@ -0,0 +1,75 @@
+package lv.alija.bookShop.load;
+
+import lv.alija.bookShop.business.repository.BookGenerationRepositoryImpl;
+import lv.alija.bookShop.model.Book;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic catalog: the same seed gives the same books. Authors write about ten books
+ * each and genres are skewed towards the first few, like in a real shop.
+ */
+class CatalogGenerator {
+
+    private static final String[] GENRES = {"Novel", "Fantasy", "Crime", "Science fiction", "Romance",
+            "Biography", "History", "Poetry", "Children", "Cooking", "Travel", "Science"};
+
+    private static final String[] WORDS = {"Silent", "River", "Night", "Garden", "Empire", "Shadow", "Winter",
+            "Glass", "Stone", "House", "Memory", "Storm", "Letters", "Island", "Journey", "Crown", "Light"};
+
+    private static final int INSERT_BATCH_SIZE = 5_000;
+
+    private final Random random;
+
+    private final int books;
+
+    CatalogGenerator(int books, long seed) {
+        this.books = books;
+        this.random = new Random(seed);
+    }
+
+    int authors() {
+        return Math.max(1, books / 10);
+    }
+
+    static String author(int index) {
+        return "Author " + index;
+    }
+
+    Book book(long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + id);
+        book.setAuthor(author(random.nextInt(authors())));
+        book.setGenre(GENRES[Math.min(GENRES.length - 1, (int) Math.abs(random.nextGaussian() * 3))]);
+        book.setReleaseYear(1950L + random.nextInt(73));
+        book.setIsbn(String.format("978-%013d", id));
+        book.setQuantity((long) random.nextInt(100));
+        book.setPrice(100L + random.nextInt(5000));
+        return book;
+    }
+
+    /**
+     * Replaces the rows of data.sql with books 1..N and moves the id sequence past them,
+     * so books created during the run get new ids. The catalog generation is increased like by any other write.
+     */
+    void seed(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("DELETE FROM book");
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (long id = 1; id <= books; id++) {
+            Book book = book(id);
+            batch.add(new Object[]{book.getId(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                    book.getReleaseYear(), book.getIsbn(), book.getQuantity(), book.getPrice()});
+            if (batch.size() == INSERT_BATCH_SIZE || id == books) {
+                jdbcTemplate.batchUpdate("INSERT INTO book (id, title, author, genre, release_year, isbn, quantity, price) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE book_seq RESTART WITH " + (books + 100));
+        jdbcTemplate.update(BookGenerationRepositoryImpl.INCREMENT_GENERATION);
+    }
+}
@@ -0,0 +1,250 @@
+package lv.alija.bookShop.load;
+
+import lv.alija.bookShop.BookShopApplication;
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.web.reactive.ReactiveBookServer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Starts the application on a random port with a synthetic catalog of N books instead of the rows of data.sql,
+ * drives a weighted mix of requests from a pool of client threads and prints throughput and latency
+ * percentiles per endpoint. Not a test, run it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=lv.alija.bookShop.load.LoadHarness \
+ *     -Dbooks=100000 -Dthreads=32 -Dwarmup=10 -Dduration=60 -Dmix=list=1,id=60,author=25,post=8,put=6
+ * </pre>
+ * With -Dstack=reactive the reads go to the reactive server instead of the servlet one, writes stay on the servlet one.
+ * The same seed gives the same catalog and the same request sequence per thread, so runs are comparable.
+ */
+public class LoadHarness {
+
+    enum Operation {
+        LIST, ID, AUTHOR, POST, PUT
+    }
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final int books;
+
+    private final int threads;
+
+    private final int warmupSeconds;
+
+    private final int durationSeconds;
+
+    private final long seed;
+
+    private final boolean reactive;
+
+    private final Map<Operation, Integer> mix;
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    private final AtomicLong newIsbns = new AtomicLong();
+
+    private volatile boolean recording;
+
+    private volatile boolean running = true;
+
+    LoadHarness(int books, int threads, int warmupSeconds, int durationSeconds, long seed, boolean reactive,
+                Map<Operation, Integer> mix) {
+        this.books = books;
+        this.threads = threads;
+        this.warmupSeconds = warmupSeconds;
+        this.durationSeconds = durationSeconds;
+        this.seed = seed;
+        this.reactive = reactive;
+        this.mix = mix;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadHarness harness = new LoadHarness(
+                Integer.getInteger("books", 10_000),
+                Integer.getInteger("threads", 16),
+                Integer.getInteger("warmup", 5),
+                Integer.getInteger("duration", 30),
+                Long.getLong("seed", 42L),
+                "reactive".equalsIgnoreCase(System.getProperty("stack", "servlet")),
+                parseMix(System.getProperty("mix", "list=2,id=60,author=25,post=8,put=5")));
+        harness.run();
+    }
+
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] weight = part.split("=");
+            weights.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+        return weights;
+    }
+
+    void run() throws InterruptedException {
+        CatalogGenerator catalog = new CatalogGenerator(books, seed);
+        SpringApplication application = new SpringApplication(BookShopApplication.class);
+        application.addListeners(new CatalogSeeder(catalog));
+        ConfigurableApplicationContext context = application.run(
+                "--server.port=0",
+                "--bookshop.reactive.enabled=" + reactive,
+                "--bookshop.reactive.port=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN");
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/book";
+            String readUrl = reactive
+                    ? "http://localhost:" + context.getBean(ReactiveBookServer.class).getPort() + "/book"
+                    : baseUrl;
+            drive(baseUrl, readUrl, catalog.authors());
+            report();
+        } finally {
+            context.close();
+        }
+    }
+
+    private void drive(String baseUrl, String readUrl, int authors) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            long threadSeed = seed + i;
+            executor.execute(() -> client(baseUrl, readUrl, authors, new CatalogGenerator(books, threadSeed),
+                    new Random(threadSeed)));
+        }
+        System.out.printf("Warming up %d s with %d threads against %d books, %s reads%n", warmupSeconds, threads, books,
+                reactive ? "reactive" : "servlet");
+        TimeUnit.SECONDS.sleep(warmupSeconds);
+        recording = true;
+        System.out.printf("Measuring %d s, mix %s%n", durationSeconds, mix);
+        TimeUnit.SECONDS.sleep(durationSeconds);
+        running = false;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private void client(String baseUrl, String readUrl, int authors, CatalogGenerator generator, Random random) {
+        RestTemplate restTemplate = new RestTemplate();
+        List<Operation> operations = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        });
+        while (running) {
+            Operation operation = operations.get(random.nextInt(operations.size()));
+            long start = System.nanoTime();
+            try {
+                call(restTemplate, baseUrl, readUrl, operation, authors, generator, random);
+                if (recording) {
+                    latencies.get(operation).recordValue(Math.min(System.nanoTime() - start, HIGHEST_TRACKABLE_NANOS));
+                }
+            } catch (RestClientException e) {
+                if (recording) {
+                    errors.get(operation).increment();
+                }
+            }
+        }
+    }
+
+    private void call(RestTemplate restTemplate, String baseUrl, String readUrl, Operation operation, int authors,
+                      CatalogGenerator generator, Random random) {
+        long id = 1 + random.nextInt(books);
+        switch (operation) {
+            case LIST:
+                restTemplate.getForObject(readUrl + "/list", byte[].class);
+                break;
+            case ID:
+                restTemplate.getForObject(readUrl + "/{id}", byte[].class, id);
+                break;
+            case AUTHOR:
+                restTemplate.getForObject(readUrl + "/list/{author}", byte[].class,
+                        CatalogGenerator.author(random.nextInt(authors)));
+                break;
+            case POST:
+                Book book = generator.book(0);
+                book.setId(null);
+                book.setIsbn(String.format("979-%013d", newIsbns.incrementAndGet()));
+                restTemplate.postForObject(baseUrl, book, byte[].class);
+                break;
+            case PUT:
+                Book update = generator.book(id);
+                update.setIsbn(String.format("978-%013d", id));
+                restTemplate.put(baseUrl + "/{id}", update, id);
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    private void report() {
+        System.out.printf("%n%-8s %10s %10s %9s %9s %9s %9s %9s %8s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            long count = histogram.getTotalCount();
+            total += count;
+            if (count == 0 && errors.get(operation).sum() == 0) {
+                continue;
+            }
+            System.out.printf("%-8s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %8d%n",
+                    operation, count, (double) count / durationSeconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()), errors.get(operation).sum());
+        }
+        System.out.printf("%-8s %10d %10.1f%n", "total", total, (double) total / durationSeconds);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Seeds the catalog once the context is refreshed, ahead of the scheduled tasks, which are started by a listener
+     * of the same event with the lowest precedence. The first bookList refresh, the snapshot, the search index and
+     * the inventory counters then all load the synthetic catalog.
+     */
+    private static class CatalogSeeder implements ApplicationListener<ContextRefreshedEvent>, Ordered {
+
+        private final CatalogGenerator catalog;
+
+        private CatalogSeeder(CatalogGenerator catalog) {
+            this.catalog = catalog;
+        }
+
+        @Override
+        public void onApplicationEvent(ContextRefreshedEvent event) {
+            if (event.getApplicationContext().getParent() == null) {
+                catalog.seed(event.getApplicationContext().getBean(JdbcTemplate.class));
+            }
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package lv.alija.bookShop.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lv.alija.bookShop.business.service.InventoryService;
+import lv.alija.bookShop.exception.BookControllerException;
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ServiceMetricsAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private InventoryService inventoryService;
+
+    private InventoryService timedInventoryService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        inventoryService = mock(InventoryService.class);
+        AspectJProxyFactory factory = new AspectJProxyFactory(inventoryService);
+        factory.addAspect(new ServiceMetricsAspect(meterRegistry));
+        timedInventoryService = factory.getProxy();
+    }
+
+    @Test
+    void timesEveryCallByMethodTest() {
+        when(inventoryService.reserve(1L, 1L)).thenReturn(new Book());
+        timedInventoryService.reserve(1L, 1L);
+        timedInventoryService.reserve(1L, 1L);
+        Timer timer = meterRegistry.find(ServiceMetricsAspect.SERVICE_TIMER)
+                .tag("method", "reserve").tag("exception", "none").timer();
+        assertNotNull(timer);
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    void tagsExceptionTest() {
+        when(inventoryService.release(63L, 1L))
+                .thenThrow(new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found"));
+        assertThrows(BookControllerException.class, () -> timedInventoryService.release(63L, 1L));
+        assertEquals(1, meterRegistry.find(ServiceMetricsAspect.SERVICE_TIMER)
+                .tag("exception", "BookControllerException").timer().count());
+    }
+}
@@ -0,0 +1,102 @@
+package lv.alija.bookShop.web.async;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ReadExecutor readExecutor;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        readExecutor.destroy();
+    }
+
+    @Test
+    void rejectsWhenThreadsAndQueueAreFullTest() throws InterruptedException {
+        readExecutor = readExecutor(false);
+        CountDownLatch finished = new CountDownLatch(2);
+        readExecutor.execute(() -> await(finished));
+        readExecutor.execute(() -> await(finished));
+        assertThrows(RejectedExecutionException.class, () -> readExecutor.execute(() -> { }));
+        assertEquals(1, meterRegistry.get(ReadExecutor.METRIC_NAME + ".rejected").counter().count());
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertNotNull(meterRegistry.find("executor.pool.size").tag("name", ReadExecutor.METRIC_NAME).gauge());
+    }
+
+    @Test
+    void keepsLimitsOnVirtualThreadsTest() throws InterruptedException {
+        readExecutor = readExecutor(true);
+        CountDownLatch finished = new CountDownLatch(2);
+        readExecutor.execute(() -> await(finished));
+        readExecutor.execute(() -> await(finished));
+        assertThrows(RejectedExecutionException.class, () -> readExecutor.execute(() -> { }));
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A cached thread pool stands in for the virtual threads, which the build JDK may not have.
+     */
+    @Test
+    void queuesReadsAboveMaxThreadsOnThreadPerTaskTest() throws InterruptedException {
+        readExecutor = new ReadExecutor(1, 1, Executors.newCachedThreadPool(), meterRegistry);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(2);
+        Runnable read = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            finished.countDown();
+        };
+        readExecutor.execute(read);
+        readExecutor.execute(read);
+        assertThrows(RejectedExecutionException.class, () -> readExecutor.execute(() -> { }));
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(1, running.get());
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        assertEquals(1, meterRegistry.get(ReadExecutor.METRIC_NAME + ".rejected").counter().count());
+    }
+
+    private ReadExecutor readExecutor(boolean virtualThreads) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        return new ReadExecutor(1, 1, virtualThreads, beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    private void await(CountDownLatch finished) {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finished.countDown();
+    }
+}
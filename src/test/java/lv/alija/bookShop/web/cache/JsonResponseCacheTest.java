@@ -0,0 +1,122 @@
+package lv.alija.bookShop.web.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lv.alija.bookShop.business.catalog.CatalogVersion;
+import lv.alija.bookShop.business.event.BookChangedEvent;
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JsonResponseCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void leastRecentlyUsedEntryIsDroppedTest() {
+        JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(), new CatalogVersion(), 2, 60000);
+        CachedResponse first = cache.bookById(1L, () -> loadBook(1L));
+        cache.bookById(2L, () -> loadBook(2L));
+        cache.bookById(1L, () -> loadBook(1L));
+        cache.bookById(3L, () -> loadBook(3L));
+
+        assertSame(first, cache.bookById(1L, () -> loadBook(1L)));
+        cache.bookById(2L, () -> loadBook(2L));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void expiredEntryIsLoadedAgainTest() {
+        JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(), new CatalogVersion(), 10, 0);
+        cache.bookList(() -> load(1L));
+        cache.bookList(() -> load(1L));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void stockChangeKeepsOtherAuthorsTest() {
+        JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(), new CatalogVersion(), 10, 60000);
+        cache.booksByAuthor("Author1", () -> load(1L));
+        cache.booksByAuthor("Author2", () -> load(2L));
+
+        cache.onBookChanged(BookChangedEvent.stock(createBook(1L, "Author1")));
+
+        cache.booksByAuthor("Author1", () -> load(1L));
+        cache.booksByAuthor("Author2", () -> load(2L));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void valueLoadedDuringChangeIsNotCachedTest() {
+        CatalogVersion catalogVersion = new CatalogVersion();
+        JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(), catalogVersion, 10, 60000);
+        cache.bookById(1L, () -> {
+            catalogVersion.onBookChanged(BookChangedEvent.deleted(1L));
+            return loadBook(1L);
+        });
+        cache.bookById(1L, () -> loadBook(1L));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void changeOfOtherBookKeepsBookAndAuthorEtagsTest() {
+        CatalogVersion catalogVersion = new CatalogVersion();
+        JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(), catalogVersion, 10, 60000);
+        CachedResponse book = cache.bookById(1L, () -> loadBook(1L));
+        CachedResponse author = cache.booksByAuthor("Author1", () -> load(1L));
+        CachedResponse list = cache.bookList(() -> load(1L));
+
+        BookChangedEvent event = BookChangedEvent.deleted(2L);
+        catalogVersion.onBookChanged(event);
+        cache.onBookChanged(event);
+
+        assertEquals(book.getEtag(), cache.bookById(1L, () -> loadBook(1L)).getEtag());
+        assertEquals(author.getEtag(), cache.booksByAuthor("Author1", () -> load(1L)).getEtag());
+        assertNotEquals(list.getEtag(), cache.bookList(() -> load(1L)).getEtag());
+    }
+
+    @Test
+    void changedStockChangesBookAndAuthorEtagsTest() {
+        JsonResponseCache cache = new JsonResponseCache(new ObjectMapper(), new CatalogVersion(), 10, 60000);
+        CachedResponse book = cache.bookById(1L, () -> loadBook(1L));
+        CachedResponse author = cache.booksByAuthor("Author1", () -> load(1L));
+
+        Book changed = createBook(1L, "Author1");
+        changed.setQuantity(1L);
+        cache.onBookChanged(BookChangedEvent.stock(changed));
+
+        assertNotEquals(book.getEtag(), cache.bookById(1L, () -> Optional.of(changed)).getEtag());
+        assertNotEquals(author.getEtag(), cache.booksByAuthor("Author1", () -> Collections.singletonList(changed)).getEtag());
+    }
+
+    private List<Book> load(Long id) {
+        loads.incrementAndGet();
+        return Collections.singletonList(createBook(id, "Author" + id));
+    }
+
+    private Optional<Book> loadBook(Long id) {
+        loads.incrementAndGet();
+        return Optional.of(createBook(id, "Author" + id));
+    }
+
+    private Book createBook(Long id, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Title" + id);
+        book.setAuthor(author);
+        book.setGenre("Genre1");
+        book.setReleaseYear(2022L);
+        book.setIsbn("000-00-00-000" + id);
+        book.setQuantity(2L);
+        book.setPrice(4L);
+        book.setVersion(0L);
+        return book;
+    }
+}
@@ -0,0 +1,122 @@
+package lv.alija.bookShop.web.controller;
+
+import lv.alija.bookShop.business.catalog.CatalogVersion;
+import lv.alija.bookShop.business.service.impl.BookServiceImpl;
+import lv.alija.bookShop.exception.BookControllerException;
+import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.web.async.ReadExecutor;
+import lv.alija.bookShop.web.cache.JsonResponseCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(AsyncBookController.class)
+@Import({BookReadResponses.class, JsonResponseCache.class, CatalogVersion.class})
+class AsyncBookControllerTest {
+
+    public static String URL = "/book/async";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookServiceImpl bookService;
+
+    @MockBean
+    private ReadExecutor readExecutor;
+
+    @Autowired
+    private JsonResponseCache jsonResponseCache;
+
+    @BeforeEach
+    public void setUp() {
+        jsonResponseCache.clear();
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(readExecutor).execute(any());
+    }
+
+    @Test
+    void findAllBooksTest() throws Exception {
+        when(bookService.findAllBooks()).thenReturn(Collections.singletonList(createBook()));
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(URL + "/list"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$", hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("Title1"))
+                .andExpect(status().isOk());
+        verify(readExecutor).execute(any());
+    }
+
+    @Test
+    void findBookByIdTest_NotModified() throws Exception {
+        when(bookService.findBookById(1L)).thenReturn(Optional.of(createBook()));
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(URL + "/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String etag = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1L))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(URL + "/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotModified());
+        verify(bookService, times(1)).findBookById(1L);
+    }
+
+    @Test
+    void findBookByIdTest_NotFound() throws Exception {
+        when(bookService.findBookById(1L))
+                .thenThrow(new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found"));
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get(URL + "/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void findAllByAuthorTest_Rejected() throws Exception {
+        doThrow(new RejectedExecutionException("Read executor is full")).when(readExecutor).execute(any());
+        mockMvc.perform(MockMvcRequestBuilders.get(URL + "/list/Author1"))
+                .andExpect(status().isServiceUnavailable());
+        verify(bookService, never()).findByAuthor(any());
+    }
+
+    private Book createBook() {
+        return new Book(1L, "Title1", "Author1", "Genre1", 2022L, "000-00-00-0001", 2L, 4L, 0L);
+    }
+}
@@ -1,31 +1,56 @@
 package lv.alija.bookShop.web.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lv.alija.bookShop.business.catalog.CatalogVersion;
+import lv.alija.bookShop.business.event.BookChangedEvent;
 import lv.alija.bookShop.business.service.impl.BookServiceImpl;
+import lv.alija.bookShop.exception.BookControllerException;
 import lv.alija.bookShop.model.Book;
+import lv.alija.bookShop.model.BookFilter;
+import lv.alija.bookShop.model.BookSlice;
+import lv.alija.bookShop.web.cache.JsonResponseCache;
+import lv.alija.bookShop.web.export.BookExportWriter;
+import lv.alija.bookShop.web.export.ExportFormat;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BookController.class)
+@Import({BookReadResponses.class, JsonResponseCache.class, CatalogVersion.class})
 class BookControllerTest {
 
     public static String URL = "/book";
@@ -39,6 +64,20 @@ class BookControllerTest {
     @MockBean
     private BookServiceImpl bookService;
 
+    @MockBean
+    private BookExportWriter bookExportWriter;
+
+    @Autowired
+    private JsonResponseCache jsonResponseCache;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @BeforeEach
+    public void setUp() {
+        jsonResponseCache.clear();
+    }
+
 
     @Test
     void findAllBooksTest() throws Exception {
@@ -60,6 +99,136 @@ class BookControllerTest {
                 .andExpect(status().isOk());
         verify(bookService, times(1)).findAllBooks();
     }
+    @Test
+    void findAllBooksTest_NotModified() throws Exception {
+        when(bookService.findAllBooks()).thenReturn(createBookList());
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get(URL + "/list"))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(MockMvcRequestBuilders.get(URL + "/list")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(content().bytes(new byte[0]))
+                .andExpect(status().isNotModified());
+        verify(bookService, times(1)).findAllBooks();
+    }
+
+    @Test
+    void findAllBooksTest_ChangedInSameSecond() throws Exception {
+        when(bookService.findAllBooks()).thenReturn(createBookList());
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get(URL + "/list"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        BookChangedEvent event = BookChangedEvent.deleted(2L);
+        catalogVersion.onBookChanged(event);
+        jsonResponseCache.onBookChanged(event);
+        mockMvc.perform(MockMvcRequestBuilders.get(URL + "/list")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(status().isOk());
+        verify(bookService, times(2)).findAllBooks();
+    }
+
+    @Test
+    void findBookFieldsTest() throws Exception {
+        Map<String, Object> fieldsOfBook = new LinkedHashMap<>();
+        fieldsOfBook.put("id", 1L);
+        fieldsOfBook.put("price", 4L);
+        when(bookService.findBookFields(Arrays.asList("id", "price"))).thenReturn(Collections.singletonList(fieldsOfBook));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(URL + "/list").param("fields", "id,price"))
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(1L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].price").value(4L))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").doesNotExist())
+                .andExpect(status().isOk());
+        verify(bookService, times(0)).findAllBooks();
+    }
+
+    @Test
+    void findBookSliceTest() throws Exception {
+        BookSlice slice = new BookSlice(createBookList(), 2, true, 1L);
+        when(bookService.findBookSlice(null, 0, 2)).thenReturn(slice);
+
+        ResultActions mvcResult = mockMvc.perform(MockMvcRequestBuilders
+                        .get(URL + "/list").param("size", "2"))
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(true))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.next").value(1L))
+                .andExpect(status().isOk());
+        verify(bookService, times(1)).findBookSlice(null, 0, 2);
+        verify(bookService, times(0)).findAllBooks();
+    }
+
+    @Test
+    void findBookSliceAfterIdWithoutSizeTest() throws Exception {
+        BookSlice slice = new BookSlice(createBookList(), BookController.DEFAULT_PAGE_SIZE, false, null);
+        when(bookService.findBookSlice(1L, 0, BookController.DEFAULT_PAGE_SIZE)).thenReturn(slice);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get(URL + "/list").param("afterId", "1"))
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(false))
+                .andExpect(status().isOk());
+        verify(bookService, times(1)).findBookSlice(1L, 0, BookController.DEFAULT_PAGE_SIZE);
+        verify(bookService, times(0)).findAllBooks();
+    }
+
+    @Test
+    void findBookPageWithoutSizeTest() throws Exception {
+        BookSlice slice = new BookSlice(createBookList(), BookController.DEFAULT_PAGE_SIZE, false, null);
+        when(bookService.findBookSlice(null, 1, BookController.DEFAULT_PAGE_SIZE)).thenReturn(slice);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get(URL + "/list").param("page", "1"))
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content", hasSize(2)))
+                .andExpect(status().isOk());
+        verify(bookService, times(1)).findBookSlice(null, 1, BookController.DEFAULT_PAGE_SIZE);
+        verify(bookService, times(0)).findAllBooks();
+    }
+
+    @Test
+    void filterBooksTest() throws Exception {
+        BookSlice slice = new BookSlice(createBookList(), 2, false, null);
+        BookFilter filter = new BookFilter("Genre1", null, 2000L, null, null, null, true);
+        when(bookService.filterBooks(filter, "price,desc", 0, 2)).thenReturn(slice);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(URL + "/filter")
+                        .param("genre", "Genre1")
+                        .param("minReleaseYear", "2000")
+                        .param("inStock", "true")
+                        .param("sort", "price,desc")
+                        .param("size", "2"))
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(false))
+                .andExpect(status().isOk());
+        verify(bookService, times(1)).filterBooks(filter, "price,desc", 0, 2);
+    }
+
+    @Test
+    void exportBooksTest() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders
+                        .get(URL + "/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"));
+        verify(bookExportWriter, times(1)).write(eq(ExportFormat.CSV), any());
+    }
+
+    @Test
+    void exportBooksTest_UnknownFormat_InvalidTest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get(URL + "/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+        verify(bookExportWriter, times(0)).write(any(), any());
+    }
+
     @Test
     void findBookByAuthorTest() throws Exception {
         List<Book> bookList = createBookList();
@@ -80,6 +249,19 @@ class BookControllerTest {
         verify(bookService, times(1)).findByAuthor("Author1");
     }
 
+    @Test
+    void searchBooksTest() throws Exception {
+        List<Book> bookList = createBookList();
+        when(bookService.searchBooks("tit auth", 20)).thenReturn(bookList);
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get(URL + "/search").param("q", "tit auth"))
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("$", hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].title").value("Title1"))
+                .andExpect(status().isOk());
+        verify(bookService, times(1)).searchBooks("tit auth", 20);
+    }
+
     @Test
     void findBookByIdTest() throws Exception {
         Optional<Book> book = Optional.of(createBook());
@@ -96,6 +278,20 @@ class BookControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.isbn").value("000-00-00-0001"))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.quantity").value(2L))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.price").value(4L))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(status().isOk());
+        verify(bookService, times(1)).findBookById(1L);
+    }
+
+    @Test
+    void findBookByIdTest_SecondRequestIsCached() throws Exception {
+        when(bookService.findBookById(1L)).thenReturn(Optional.of(createBook()));
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get(URL + "/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(MockMvcRequestBuilders.get(URL + "/1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1L))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
                 .andExpect(status().isOk());
         verify(bookService, times(1)).findBookById(1L);
     }
@@ -129,7 +325,7 @@ class BookControllerTest {
     @Test
     void updateBookByIdTest() throws Exception {
         Book book = createBook();
-        when(bookService.findBookById(book.getId())).thenReturn(Optional.of(book));
+        when(bookService.updateBook(book, book.getId())).thenReturn(book);
         ResultActions mvcResult = mockMvc.perform(MockMvcRequestBuilders
                         .put(URL + "/1")
                         .content(asJsonString(book))
@@ -138,6 +334,7 @@ class BookControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1L))
                 .andExpect(status().isAccepted());
         verify(bookService, times(1)).updateBook(book, book.getId());
+        verify(bookService, times(0)).findBookById(anyLong());
     }
 
     @Test
@@ -145,7 +342,6 @@ class BookControllerTest {
 
         Book book = createBook();
         book.setId(0L);
-        when(bookService.findBookById(0L)).thenReturn(Optional.empty());
         ResultActions mvcResult = mockMvc.perform(MockMvcRequestBuilders
                         .put(URL + "/")
                         .content(asJsonString(book))
@@ -170,16 +366,22 @@ class BookControllerTest {
 
     @Test
     void deleteBookByIdTest() throws Exception {
-        Optional<Book> book = Optional.of(createBook());
-        when(bookService.findBookById(anyLong())).thenReturn(book);
-
         ResultActions mvcResult = mockMvc.perform(MockMvcRequestBuilders
                         .delete(URL + "/1")
-                        .content(asJsonString(book))
                         .contentType(APPLICATION_JSON)
                         .accept(APPLICATION_JSON))
                 .andExpect(status().isNoContent());
         verify(bookService, times(1)).deleteBookById(anyLong());
+        verify(bookService, times(0)).findBookById(anyLong());
+    }
+
+    @Test
+    void deleteBookByIdTest_NotFound_InvalidTest() throws Exception {
+        doThrow(new BookControllerException(HttpStatus.NOT_FOUND, "Book with this id is not found"))
+                .when(bookService).deleteBookById(63L);
+        ResultActions mvcResult = mockMvc.perform(MockMvcRequestBuilders
+                        .delete(URL + "/63"))
+                .andExpect(status().isNotFound());
     }
 
     private List<Book> createBookList() {
@@ -0,0 +1,106 @@
+package lv.alija.bookShop.web.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lv.alija.bookShop.business.repository.ReactiveBookRepository;
+import lv.alija.bookShop.business.service.BookService;
+import lv.alija.bookShop.exception.BookControllerException;
+import lv.alija.bookShop.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveBookServerTest {
+
+    private ReactiveBookRepository reactiveBookRepository;
+
+    private BookService bookService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        reactiveBookRepository = mock(ReactiveBookRepository.class);
+        bookService = mock(BookService.class);
+        ReactiveBookHandler handler = new ReactiveBookHandler(reactiveBookRepository, bookService, new ObjectMapper());
+        ReactiveBookServer server = new ReactiveBookServer(handler, new ObjectMapper(), 0);
+        webTestClient = WebTestClient.bindToRouterFunction(server.routes())
+                .handlerStrategies(server.strategies())
+                .build();
+    }
+
+    @Test
+    void findAllBooksStreamsNdjsonTest() {
+        when(reactiveBookRepository.findAllBooks()).thenReturn(Flux.just(createBook(1L), createBook(2L)));
+        String body = webTestClient.get().uri("/book/list")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).returnResult().getResponseBody();
+        String[] lines = body.trim().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("\"id\":2"));
+    }
+
+    @Test
+    void findAllByAuthorTest_NotFound() {
+        when(reactiveBookRepository.findByAuthor("Nobody")).thenReturn(Flux.empty());
+        webTestClient.get().uri("/book/list/Nobody")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("Book list by this author is empty");
+    }
+
+    @Test
+    void findBookByIdTest() {
+        when(reactiveBookRepository.findById(1L)).thenReturn(Mono.just(createBook(1L)));
+        webTestClient.get().uri("/book/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.title").isEqualTo("Title1");
+    }
+
+    @Test
+    void findBookByIdTest_InvalidId() {
+        webTestClient.get().uri("/book/-1")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(reactiveBookRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void searchBooksTest() {
+        when(bookService.searchBooks("title", 5)).thenReturn(Collections.singletonList(createBook(1L)));
+        webTestClient.get().uri("/book/search?q=title&limit=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON);
+        verify(bookService).searchBooks("title", 5);
+    }
+
+    @Test
+    void searchBooksTest_InvalidQuery() {
+        when(bookService.searchBooks(null, 20))
+                .thenThrow(new BookControllerException(HttpStatus.BAD_REQUEST, "Query should not be blank"));
+        webTestClient.get().uri("/book/search")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private Book createBook(Long id) {
+        return new Book(id, "Title" + id, "Author" + id, "Genre" + id, 2022L, "000-00-00-000" + id, 2L, 4L, 0L);
+    }
+}